@@ -5,6 +5,7 @@ import model.Game.Game;
 import model.Game.GameAI.*;
 import model.Game.Move;
 import model.Game.Quarto;
+import model.Game.WinRules;
 import model.Piece;
 import view.QuartoView;
 import view.SquareButton;
@@ -272,7 +273,9 @@ public class QuartoController
      */
     private Game promptGameMode()
     {
-        Game[] modes = {new Quarto(), new Quarto(Attribute.BAR), new Quarto(Attribute.SLASH)};
+        Game[] modes = {new Quarto(), new Quarto(true), new Quarto(WinRules.LINES, WinRules.WRAP),
+                        new Quarto(Attribute.BAR), new Quarto(Attribute.SLASH),
+                        new Quarto(Attribute.SLASH, Attribute.BAR)};
         return (Game) JOptionPane.showInputDialog(null, "Choose the Game mode:", "Game mode selection",
                 JOptionPane.QUESTION_MESSAGE, null, modes, modes[0]);
     }
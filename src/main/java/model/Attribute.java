@@ -14,6 +14,7 @@ public class Attribute
     public final String name;
     public final Att att0;
     public final Att att1;
+    public final int mask;
 
     /**
      * Constructs an attribute object with the given name and its two values.
@@ -26,6 +27,7 @@ public class Attribute
         name = attName;
         att0 = a0;
         att1 = a1;
+        mask = (1 << a0.ordinal()) | (1 << a1.ordinal());
     }
 
     public boolean isValid()
@@ -48,7 +50,7 @@ public class Attribute
     @Override
     public int hashCode()
     {
-        return 42;
+        return mask;
     }
 
     @Override
@@ -57,10 +59,7 @@ public class Attribute
         if(other == null || !(other instanceof Attribute))
             return false;
 
-        Attribute rhs = (Attribute)other;
-
-        return (att0 == rhs.att0 && att1 == rhs.att1) ||
-                (att1 == rhs.att0 && att0 == rhs.att1);
+        return mask == ((Attribute)other).mask;
     }
 
     /**
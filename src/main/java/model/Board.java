@@ -1,7 +1,12 @@
 package model;
 
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
 /**
- * Representation of a rectangular game board as a piece array.
+ * Representation of a rectangular game board as a piece array. Squares are also numbered as cells, row-major
+ * (cell = y * xLength + x), and the occupied cells are mirrored in a bit mask so the board can be scanned in bulk.
+ * The bulk accessors only cover the first 64 cells.
  */
 
 public class Board
@@ -10,6 +15,7 @@ public class Board
     public final int yLength;
 
     private Piece[][] board;
+    private long occupied = 0;
 
     /**
      * Constructors a rectangular board of dimensions xLen by yLen. Both dimensions must be positive. Defaults to
@@ -49,6 +55,16 @@ public class Board
         return null;
     }
 
+    /**
+     * Returns the piece on the given cell. Null if no piece exists or invalid cell.
+     * @param cell int
+     * @return Piece
+     */
+    public Piece get(int cell)
+    {
+        return (cell >= 0 && cell < xLength * yLength)? board[cell % xLength][cell / xLength] : null;
+    }
+
     /**
      * Places a piece onto the board. Does nothing if invalid coordinates.
      * @param x int
@@ -57,7 +73,10 @@ public class Board
     public void put(Piece piece, int x, int y)
     {
         if(isValid(x, y))
+        {
             board[x][y] = piece;
+            setOccupied(cell(x, y), piece != null);
+        }
     }
 
     /**
@@ -67,7 +86,23 @@ public class Board
      */
     public void remove(int x, int y)
     {
-        if(isValid(x, y)) board[x][y] = null;
+        if(isValid(x, y))
+        {
+            board[x][y] = null;
+            setOccupied(cell(x, y), false);
+        }
+    }
+
+    /**
+     * Helper for keeping the occupancy mask in sync with the piece array.
+     * @param cell int
+     * @param filled boolean
+     */
+    private void setOccupied(int cell, boolean filled)
+    {
+        if(cell >= Long.SIZE) return;
+        if(filled) occupied |= 1L << cell;
+        else occupied &= ~(1L << cell);
     }
 
     /**
@@ -91,4 +126,78 @@ public class Board
     {
         return isValid(x, y) && board[x][y] == null;
     }
+
+    /**
+     * Returns the cell number of the given coordinates. Does not check that they are valid.
+     * @param x int
+     * @param y int
+     * @return int
+     */
+    public int cell(int x, int y)
+    {
+        return y * xLength + x;
+    }
+
+    /**
+     * Returns the mask of occupied cells.
+     * @return long
+     */
+    public long occupiedMask()
+    {
+        return occupied;
+    }
+
+    /**
+     * Returns the mask of empty cells.
+     * @return long
+     */
+    public long openMask()
+    {
+        int size = xLength * yLength;
+        return ~occupied & ((size >= Long.SIZE)? -1L : (1L << size) - 1);
+    }
+
+    /**
+     * Returns an iterator over the empty cells in ascending order. The iterator works on a copy of the mask, so the
+     * board can be changed while iterating.
+     * @return PrimitiveIterator.OfInt
+     */
+    public PrimitiveIterator.OfInt openCellIterator()
+    {
+        return new PrimitiveIterator.OfInt()
+        {
+            private long left = openMask();
+
+            @Override
+            public boolean hasNext()
+            {
+                return left != 0;
+            }
+
+            @Override
+            public int nextInt()
+            {
+                if(left == 0) throw new NoSuchElementException();
+                int c = Long.numberOfTrailingZeros(left);
+                left &= left - 1;
+                return c;
+            }
+        };
+    }
+
+    /**
+     * Writes the values of the pieces on the given cells into out, or -1 for empty cells, and returns out.
+     * @param cells int[]
+     * @param out int[]
+     * @return int[]
+     */
+    public int[] values(int[] cells, int[] out)
+    {
+        for(int i = 0; i < cells.length; i++)
+        {
+            Piece p = get(cells[i]);
+            out[i] = (p != null)? p.value : -1;
+        }
+        return out;
+    }
 }
@@ -0,0 +1,513 @@
+package model.Game;
+
+import java.util.Arrays;
+
+/**
+ * Packed primitive representation of a Quarto position. Cells are indexed row-major (cell = y * dim + x) and pieces
+ * by their Piece.value. The occupancy and free pieces are single long masks and the piece on each cell is packed into
+ * a handful of longs, so a position can be searched and copied without touching any Piece objects or lists.
+ */
+public class BitBoard
+{
+    public static final int NONE = -1;
+    public static final int MAX_CELLS = 36;
+    public static final int MAX_PIECES = 64;
+
+    static final int CELL_BITS = 6;
+    static final int CELLS_PER_WORD = 10;
+    static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+    // Masks of the piece values that have each attribute bit set
+    private static final long[] WITH_BIT = new long[CELL_BITS];
+    static
+    {
+        for(int v = 0; v < MAX_PIECES; v++)
+            for(int bit = 0; bit < CELL_BITS; bit++)
+                if((v & (1 << bit)) != 0) WITH_BIT[bit] |= 1L << v;
+    }
+
+    public final int dim;
+    public final int size;
+    public final int numPieces;
+
+    private long occupied = 0;
+    private long frees;
+    private final long[] cells = new long[(MAX_CELLS + CELLS_PER_WORD - 1) / CELLS_PER_WORD];
+    private int nextPick = NONE;
+    private int turn = 0;
+    private int placed = 0;
+    private long hash = 0;
+
+    // Running AND and AND-of-complement of the piece values on each line, plus the number of pieces on each line.
+    // Lines are numbered as in the board size's LineTable.
+    private final LineTable lines;
+    private final int[] lineAnd;
+    private final int[] lineAndNot;
+    private final int[] lineCount;
+
+    // Number of lines that can still be won, i.e. whose pieces still share an attribute. Once a line holds two pieces
+    // with nothing in common it is dead for good, and when no live lines remain the game is a forced draw.
+    private int liveLines;
+
+    // Undo stack of per-move deltas: the cell and previous pick packed into an int, the previous hash, and the
+    // previous masks of each line through the cell packed as (and | andNot << 16)
+    private final int linesPerCell;
+    private final int[] histMove;
+    private final long[] histHash;
+    private final int[] histLines;
+    private int ply = 0;
+
+    /**
+     * Constructs an empty dim by dim board with numPieces free pieces, won by the standard lines.
+     * @param dim int
+     * @param numPieces int
+     */
+    public BitBoard(int dim, int numPieces)
+    {
+        this(LineTable.of(dim), numPieces);
+    }
+
+    /**
+     * Constructs an empty board with numPieces free pieces, won by the lines of the given table.
+     * @param lines LineTable
+     * @param numPieces int
+     */
+    public BitBoard(LineTable lines, int numPieces)
+    {
+        if(lines.size > MAX_CELLS || numPieces > MAX_PIECES)
+            throw new IllegalArgumentException("Board too large for BitBoard: " + lines.dim + "x" + lines.dim);
+        this.dim = lines.dim;
+        this.size = lines.size;
+        this.numPieces = numPieces;
+        frees = (numPieces == MAX_PIECES)? -1L : (1L << numPieces) - 1;
+        this.lines = lines;
+        linesPerCell = lines.maxLinesPerCell();
+        histMove = new int[size + 1];
+        histHash = new long[size + 1];
+        histLines = new int[(size + 1) * linesPerCell];
+        lineAnd = new int[lines.count];
+        lineAndNot = new int[lines.count];
+        lineCount = new int[lines.count];
+        Arrays.fill(lineAnd, pieceMask());
+        Arrays.fill(lineAndNot, pieceMask());
+        liveLines = (pieceMask() != 0)? lines.count : 0;
+    }
+
+    /**
+     * Copy constructor. The copy shares no state with the original.
+     * @param other BitBoard
+     */
+    public BitBoard(BitBoard other)
+    {
+        dim = other.dim;
+        size = other.size;
+        numPieces = other.numPieces;
+        occupied = other.occupied;
+        frees = other.frees;
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        nextPick = other.nextPick;
+        turn = other.turn;
+        placed = other.placed;
+        hash = other.hash;
+        histMove = other.histMove.clone();
+        histHash = other.histHash.clone();
+        histLines = other.histLines.clone();
+        ply = other.ply;
+        lines = other.lines;
+        linesPerCell = other.linesPerCell;
+        lineAnd = other.lineAnd.clone();
+        lineAndNot = other.lineAndNot.clone();
+        lineCount = other.lineCount.clone();
+        liveLines = other.liveLines;
+    }
+
+    /**
+     * Constructs a board from a snapshot, won by the same lines as the board it was taken from. The line masks are
+     * rebuilt from the pieces on the board. The board has no moves to unmake.
+     * @param state GameState
+     */
+    public BitBoard(GameState state)
+    {
+        this(state.lines, state.numPieces);
+        for(long cs = state.occupied; cs != 0; cs &= cs - 1)
+        {
+            int c = Long.numberOfTrailingZeros(cs), p = state.pieceAt(c);
+            occupied |= 1L << c;
+            setCell(c, p);
+            placed++;
+            for(int l : lines.linesOf(c))
+            {
+                boolean live = lineShared(l) != 0;
+                lineAnd[l] &= p;
+                lineAndNot[l] &= ~p;
+                lineCount[l]++;
+                if(live && lineShared(l) == 0) liveLines--;
+            }
+        }
+        frees = state.frees;
+        nextPick = state.nextPick;
+        turn = state.turn;
+        hash = state.hash;
+    }
+
+    /**
+     * Returns an immutable snapshot of the position. The game over flags are left false since a BitBoard does not
+     * track them.
+     * @return GameState
+     */
+    public GameState snapshot()
+    {
+        return snapshot(false, false);
+    }
+
+    /**
+     * Returns an immutable snapshot of the position with the given game over flags.
+     * @param gameover boolean
+     * @param draw boolean
+     * @return GameState
+     */
+    public GameState snapshot(boolean gameover, boolean draw)
+    {
+        return new GameState(lines, numPieces, occupied, cells, frees, nextPick, turn, gameover, draw);
+    }
+
+    /**
+     * Returns an independent copy of this board.
+     * @return BitBoard
+     */
+    public BitBoard copy()
+    {
+        return new BitBoard(this);
+    }
+
+    /**
+     * Places the next pick on the given cell (ignored if cell is NONE or there is no next pick) and hands the pick to
+     * the other player. Does not validate the move; callers are expected to only pass open cells and free picks.
+     * @param cell int
+     * @param pick int
+     */
+    public void make(int cell, int pick)
+    {
+        histMove[ply] = (cell & 0xFF) | (nextPick & 0xFF) << 8;
+        histHash[ply] = hash;
+        hash ^= Zobrist.pick(nextPick) ^ Zobrist.pick(pick) ^ Zobrist.TURN;
+        if(cell != NONE && nextPick != NONE)
+        {
+            hash ^= Zobrist.cell(cell, nextPick);
+            occupied |= 1L << cell;
+            setCell(cell, nextPick);
+            placed++;
+            int h = ply * linesPerCell;
+            for(int l : lines.linesOf(cell))
+            {
+                histLines[h++] = lineAnd[l] | lineAndNot[l] << 16;
+                boolean live = lineShared(l) != 0;
+                lineAnd[l] &= nextPick;
+                lineAndNot[l] &= ~nextPick;
+                lineCount[l]++;
+                if(live && lineShared(l) == 0) liveLines--;
+            }
+        }
+        if(pick != NONE) frees &= ~(1L << pick);
+        nextPick = pick;
+        turn ^= 1;
+        ply++;
+    }
+
+    /**
+     * Reverts the last call to make by restoring its stored delta. Constant time. Does nothing if there are no moves
+     * to unmake.
+     */
+    public void unmake()
+    {
+        if(ply == 0) return;
+        int move = histMove[--ply], cell = (byte) move, prev = (byte) (move >> 8);
+        if(nextPick != NONE) frees |= 1L << nextPick;
+        hash = histHash[ply];
+        if(cell != NONE && prev != NONE)
+        {
+            occupied &= ~(1L << cell);
+            placed--;
+            int h = ply * linesPerCell;
+            for(int l : lines.linesOf(cell))
+            {
+                int masks = histLines[h++];
+                boolean dead = lineShared(l) == 0;
+                lineAnd[l] = masks & 0xFFFF;
+                lineAndNot[l] = masks >>> 16;
+                lineCount[l]--;
+                if(dead && lineShared(l) != 0) liveLines++;
+            }
+        }
+        nextPick = prev;
+        turn ^= 1;
+    }
+
+    /**
+     * Returns the mask of free pieces that would let the player receiving them win on the spot, i.e. that complete some
+     * line missing one piece.
+     * @return long
+     */
+    public long poison()
+    {
+        return poisonAfter(NONE, NONE);
+    }
+
+    /**
+     * Returns the mask of free pieces that would let the player receiving them win on the spot, once the given piece
+     * has been placed on the given open cell. Computed in a single pass over the lines without changing the board: the
+     * attribute bits shared by every line one piece short are collected first, and a piece is poison if it has any of
+     * them. Passing NONE for the cell gives the poison of the current board.
+     * @param cell int
+     * @param piece int
+     * @return long
+     */
+    public long poisonAfter(int cell, int piece)
+    {
+        int needAnd = 0, needAndNot = 0;
+        long placedAt = (cell == NONE || piece == NONE)? 0 : 1L << cell;
+        for(int l = 0, n = lines.count; l < n; l++)
+        {
+            int count = lineCount[l], and = lineAnd[l], andNot = lineAndNot[l];
+            if((lines.maskOf(l) & placedAt) != 0)
+            {
+                count++;
+                and &= piece;
+                andNot &= ~piece;
+            }
+            if(count == lines.lengthOf(l) - 1)
+            {
+                needAnd |= and;
+                needAndNot |= andNot;
+            }
+        }
+        long poison = 0;
+        for(int bit = 0, mask = pieceMask(); bit < CELL_BITS; bit++)
+        {
+            if((mask & (1 << bit)) == 0) continue;
+            if((needAnd & (1 << bit)) != 0)    poison |= WITH_BIT[bit];
+            if((needAndNot & (1 << bit)) != 0) poison |= ~WITH_BIT[bit];
+        }
+        long free = frees;
+        if(piece != NONE) free &= ~(1L << piece);
+        return poison & free;
+    }
+
+    /**
+     * Returns true if placing the given piece on the given open cell completes a line of pieces sharing an attribute.
+     * If the cell is already occupied, returns true if any line through the cell is complete and shares an attribute.
+     * @param cell int
+     * @param piece int
+     * @return boolean
+     */
+    public boolean wins(int cell, int piece)
+    {
+        if(piece == NONE || cell < 0 || cell >= size) return false;
+        boolean filled = isOccupied(cell);
+        int missing = filled? 0 : 1, and = filled? -1 : piece, andNot = filled? -1 : ~piece;
+        for(int l : lines.linesOf(cell))
+            if(lineCount[l] + missing == lines.lengthOf(l) && (((lineAnd[l] & and) | (lineAndNot[l] & andNot)) & pieceMask()) != 0)
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns the number of lines through the given open cell that placing the given piece there leaves one piece short
+     * of complete with their pieces still sharing an attribute, i.e. the threats the placement sets up.
+     * @param cell int
+     * @param piece int
+     * @return int
+     */
+    public int threatsAfter(int cell, int piece)
+    {
+        int threats = 0;
+        for(int l : lines.linesOf(cell))
+            if(lineCount[l] + 2 == lines.lengthOf(l) && (((lineAnd[l] & piece) | (lineAndNot[l] & ~piece)) & pieceMask()) != 0)
+                threats++;
+        return threats;
+    }
+
+    /**
+     * Returns the line topology of the board.
+     * @return LineTable
+     */
+    public LineTable lines()
+    {
+        return lines;
+    }
+
+    /**
+     * Returns the number of pieces on the given line.
+     * @param line int
+     * @return int
+     */
+    public int lineCount(int line)
+    {
+        return lineCount[line];
+    }
+
+    /**
+     * Returns the mask of attribute bits that every piece on the given line agrees on, whether set or unset. All bits
+     * are set for an empty line.
+     * @param line int
+     * @return int
+     */
+    public int lineShared(int line)
+    {
+        return (lineAnd[line] | lineAndNot[line]) & pieceMask();
+    }
+
+    /**
+     * Returns the number of lines that can still be won.
+     * @return int
+     */
+    public int liveLines()
+    {
+        return liveLines;
+    }
+
+    /**
+     * Returns true if some line is complete and its pieces share an attribute.
+     * @return boolean
+     */
+    public boolean isWon()
+    {
+        for(int l = 0, n = lines.count; l < n; l++)
+            if(lineCount[l] == lines.lengthOf(l) && lineShared(l) != 0) return true;
+        return false;
+    }
+
+    /**
+     * Returns true if nobody can win anymore, either because every line is dead or because the board is full. Only
+     * meaningful if the last placement did not win.
+     * @return boolean
+     */
+    public boolean isDrawn()
+    {
+        return liveLines == 0 || placed == size;
+    }
+
+    /**
+     * Returns the mask of attribute bits used by the piece values.
+     * @return int
+     */
+    public int pieceMask()
+    {
+        return numPieces - 1;
+    }
+
+    /**
+     * Returns the piece value on the given cell. Only meaningful if the cell is occupied.
+     * @param cell int
+     * @return int
+     */
+    public int pieceAt(int cell)
+    {
+        return (int) ((cells[cell / CELLS_PER_WORD] >>> ((cell % CELLS_PER_WORD) * CELL_BITS)) & CELL_MASK);
+    }
+
+    /**
+     * Helper for writing a piece value into the packed cell words.
+     * @param cell int
+     * @param piece int
+     */
+    private void setCell(int cell, int piece)
+    {
+        int w = cell / CELLS_PER_WORD, shift = (cell % CELLS_PER_WORD) * CELL_BITS;
+        cells[w] = (cells[w] & ~(CELL_MASK << shift)) | ((long) piece << shift);
+    }
+
+    public boolean isOccupied(int cell)
+    {
+        return (occupied & (1L << cell)) != 0;
+    }
+
+    public boolean isFree(int piece)
+    {
+        return piece >= 0 && piece < numPieces && (frees & (1L << piece)) != 0;
+    }
+
+    public long occupied()
+    {
+        return occupied;
+    }
+
+    /**
+     * Returns the mask of open cells.
+     * @return long
+     */
+    public long openCells()
+    {
+        return ~occupied & ((size == 64)? -1L : (1L << size) - 1);
+    }
+
+    public long frees()
+    {
+        return frees;
+    }
+
+    public int nextPick()
+    {
+        return nextPick;
+    }
+
+    /**
+     * Returns the Zobrist hash of the position, covering the pieces on the board, the next pick and the side to move.
+     * @return long
+     */
+    public long hash()
+    {
+        return hash;
+    }
+
+    public int turn()
+    {
+        return turn;
+    }
+
+    /**
+     * Returns the number of pieces on the board.
+     * @return int
+     */
+    public int placed()
+    {
+        return placed;
+    }
+
+    /**
+     * Returns the number of moves that can currently be unmade.
+     * @return int
+     */
+    public int ply()
+    {
+        return ply;
+    }
+
+    /**
+     * Returns the cell index of the given coordinates.
+     * @param x int
+     * @param y int
+     * @return int
+     */
+    public int cell(int x, int y)
+    {
+        return y * dim + x;
+    }
+
+    /**
+     * Returns a string representing the board and the next piece to be placed.
+     * @return String
+     */
+    public String boardState()
+    {
+        StringBuilder sb = new StringBuilder();
+        for(int c = 0; c < size; c++)
+        {
+            if(isOccupied(c)) sb.append(pieceAt(c));
+            else sb.append('X');
+            sb.append(',');
+        }
+        sb.append((nextPick != NONE)? String.valueOf(nextPick) : "X");
+        return sb.toString();
+    }
+}
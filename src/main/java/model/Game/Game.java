@@ -5,6 +5,7 @@ import model.Attribute.Att;
 import model.Board;
 import model.Game.GameAI.GameAI;
 import model.Piece;
+import model.PieceCatalog;
 
 import java.util.*;
 
@@ -15,10 +16,13 @@ import java.util.*;
 public abstract class Game
 {
     protected List<Attribute> atts = new ArrayList<>();
-    protected List<Piece> frees = new ArrayList<>();
-    protected List<Piece> actives = new ArrayList<>();
+    protected PieceSet frees;
+    protected PieceSet actives;
     protected List<Move> moves = new ArrayList<>();
     protected Board board;
+    protected BitBoard bits;
+    protected Piece[] pieceByValue;
+    protected byte[] prevFlags;
     protected GameAI[] cpu = new GameAI[2];
     protected byte turn = 0;
     protected Piece nextPick = null;
@@ -37,7 +41,7 @@ public abstract class Game
 
     /**
      * Defines the conditions for a win. Win for standard Quarto is getting 4 in a row of a one or more attributes.
-     * Returns true if a win has occurred.
+     * Returns true if a win has occurred. A square holding another piece never wins for the given piece.
      * @param p Piece
      * @param x int
      * @param y int
@@ -80,7 +84,9 @@ public abstract class Game
 
         if (firstMove || lastMove || normMove)
         {
+            prevFlags[moves.size()] = packFlags();
             moves.add(new Move(nextPick, x, y, pick));
+            bits.make(firstMove? BitBoard.NONE : bits.cell(x, y), (pick == null)? BitBoard.NONE : pick.value);
             putPiece(nextPick, x, y);
             if(!forceMove) gameover = checkWin(nextPick, x, y);
             pickPiece(pick);
@@ -121,7 +127,8 @@ public abstract class Game
     }
 
     /**
-     * Undo the last move. Returns a Move representing the last move.
+     * Undo the last move. Returns a Move representing the last move. Every step restores a stored delta, so undoing
+     * takes constant time and restores the turn and game over flags exactly, even after a forced undo of a win.
      * @return Move
      * @param forceUndo
      */
@@ -131,13 +138,34 @@ public abstract class Game
         Move last = moves.remove((moves.size()-1));
         Piece placed = last.placed;
         board.remove(last.x, last.y);
+        bits.unmake();
         actives.remove(placed);
         if(nextPick != null) frees.add(nextPick);
         nextPick = placed;
-        updateState();
+        unpackFlags(prevFlags[moves.size()]);
         return last;
     }
 
+    /**
+     * Helper for packing the turn and game over flags into a byte.
+     * @return byte
+     */
+    private byte packFlags()
+    {
+        return (byte) (turn | (gameover? 2 : 0) | (draw? 4 : 0));
+    }
+
+    /**
+     * Helper for restoring the turn and game over flags from a byte made by packFlags.
+     * @param flags byte
+     */
+    private void unpackFlags(byte flags)
+    {
+        turn = (byte) (flags & 1);
+        gameover = (flags & 2) != 0;
+        draw = (flags & 4) != 0;
+    }
+
     /**
      * Returns the previously made move without undoing.
      * @return Move
@@ -148,14 +176,16 @@ public abstract class Game
     }
 
     /**
-     * Updates the state of the game. If the game isn't over, check if the last move has been played. If not, switch
-     * turns.
+     * Updates the state of the game. If the game isn't over, check if the last move has been played or no line can be
+     * won anymore, either of which is a draw. Then switch turns.
      */
     protected void updateState()
     {
         if(gameover) return;
         if(actives.size() == (board.xLength*board.yLength)) // Last move played
             gameover = draw = true;
+        else if(bits.liveLines() == 0)                      // Every line is dead
+            gameover = draw = true;
         turn ^= 1;
     }
 
@@ -203,6 +233,54 @@ public abstract class Game
         return board.isOpen(x,y);
     }
 
+    /**
+     * Returns the mask of open board cells. Cells are numbered row-major (cell = y * dim + x).
+     * @return long
+     */
+    public long openCells()
+    {
+        return board.openMask();
+    }
+
+    /**
+     * Returns an iterator over the open board cells in ascending order.
+     * @return PrimitiveIterator.OfInt
+     */
+    public PrimitiveIterator.OfInt openCellIterator()
+    {
+        return board.openCellIterator();
+    }
+
+    /**
+     * Returns the line topology of the board, including any extra winning groups of the variant.
+     * @return LineTable
+     */
+    public LineTable lines()
+    {
+        return bits.lines();
+    }
+
+    /**
+     * Returns the groups of cells that win the game when their pieces share an attribute. Variants with other win
+     * rules override this. Called once while setting up the pieces.
+     * @return LineTable
+     */
+    protected LineTable winLines()
+    {
+        return LineTable.of(board.xLength);
+    }
+
+    /**
+     * Returns the values of the pieces on the given line, in the order of LineTable.cellsOf, with -1 for empty cells.
+     * @param line int
+     * @return int[]
+     */
+    public int[] lineValues(int line)
+    {
+        int[] cells = lines().cellsOf(line);
+        return board.values(cells, new int[cells.length]);
+    }
+
     /**
      * Returns the piece at the given coordinates, returns null if there's no piece or invalid coordinates.
      * @param x int
@@ -216,6 +294,7 @@ public abstract class Game
 
     /**
      * Checks if the Piece is part of the game and is a free piece (not in play). Returns true if piece is free.
+     * Both checks are single bit tests.
      * @param p Piece
      * @return boolean
      */
@@ -234,7 +313,8 @@ public abstract class Game
     }
 
     /**
-     * Returns the list of free pieces.
+     * Returns the list of free pieces. The list is a live view ordered by piece value, so a piece's index only changes
+     * when pieces before it are picked or given back.
      * @return List<Piece>
      */
     public List<Piece> getFrees()
@@ -251,6 +331,28 @@ public abstract class Game
         return actives;
     }
 
+    /**
+     * Returns the free pieces that would let the opponent win immediately if picked for them now ("poison pieces").
+     * @return List<Piece>
+     */
+    public List<Piece> getPoisonPieces()
+    {
+        return new PieceSet(pieceByValue, bits.poison());
+    }
+
+    /**
+     * Returns the free pieces that would let the opponent win immediately if the next pick were placed on the given
+     * square first. Ignores the placement if the square isn't open or there is no next pick.
+     * @param x int
+     * @param y int
+     * @return List<Piece>
+     */
+    public List<Piece> getPoisonPieces(int x, int y)
+    {
+        if(nextPick == null || !board.isOpen(x, y)) return getPoisonPieces();
+        return new PieceSet(pieceByValue, bits.poisonAfter(bits.cell(x, y), nextPick.value));
+    }
+
     /**
      * Returns a List of free Pieces that have all the attributes specified by the list of attributes
      * @param attributes List
@@ -259,8 +361,10 @@ public abstract class Game
     public List<Piece> findPieces(Att[] attributes)
     {
         List<Piece> ps = new ArrayList<>();
+        if(attributes == null || attributes.length == 0) return ps;
+        int mask = Piece.maskOf(attributes);
         for(Piece p : frees)
-            if(p.hasAtts(attributes)) ps.add(p);
+            if(p.hasAtts(mask)) ps.add(p);
         return ps;
     }
 
@@ -306,52 +410,132 @@ public abstract class Game
     }
 
     /**
-     * Returns the side length of the game board used.
-     * @return int
+     * Returns a copy of the packed primitive state of the game. Searches should run on the copy so the live game is
+     * never mutated.
+     * @return BitBoard
      */
-    public int dim()
+    public BitBoard bitBoard()
     {
-        return board.xLength;
+        return bits.copy();
     }
 
     /**
-     * Creates a piece from a binary array. Each bit specifies the attribute value corresponding to the attribute at
-     * the same index in atts.
-     * @param attNums byte[]
-     * @return Piece
+     * Returns an immutable snapshot of the current position, including whose turn it is and whether the game is over.
+     * @return GameState
      */
-    protected Piece pieceFromBinary(byte[] attNums)
+    public GameState snapshot()
     {
-        Piece p = new Piece(atts, attNums);
-        p.initIcon();
-        return p;
+        return bits.snapshot(gameover, draw);
     }
 
     /**
-     * Sets up all the piece types.
+     * Returns an independent copy of this game at its current position, for search threads or background analysis
+     * that must not touch the game in play. The copy has no AIs and no move history, so it cannot undo past the
+     * current position.
+     * @return Game
      */
-    protected void setupPieces()
+    public Game fork()
     {
-        int n = atts.size();
-        genPieces(new byte[n], n);
+        Game g = newGame();
+        g.restore(snapshot());
+        return g;
     }
 
     /**
-     * Helper for recursively generating all the pieces. Essentially generates all possible binary arrays of length
-     * n, and calls pieceFromBinary on each generated array.
-     * @param attNums int[]
-     * @param n int
+     * Creates a new game of the same variant at its initial position.
+     * @return Game
      */
-    protected void genPieces(byte[] attNums, int n)
+    protected abstract Game newGame();
+
+    /**
+     * Sets the game to the position in the snapshot. The snapshot must be of the same variant. Clears the move
+     * history.
+     * @param state GameState
+     */
+    protected void restore(GameState state)
     {
-        if(n < 1) frees.add(pieceFromBinary(attNums));
-        else
+        if(state.lines != bits.lines() || state.numPieces != pieceByValue.length)
+            throw new IllegalArgumentException("Snapshot is of another variant");
+        int n = dim();
+        long active = 0;
+        board = new Board(n, n);
+        for(long cs = state.occupied; cs != 0; cs &= cs - 1)
         {
-            attNums[n-1] = 0;
-            genPieces(attNums, n-1);
-            attNums[n-1] = 1;
-            genPieces(attNums, n-1);
+            int c = Long.numberOfTrailingZeros(cs), v = state.pieceAt(c);
+            board.put(pieceByValue[v], c % n, c / n);
+            active |= 1L << v;
         }
+        bits = new BitBoard(state);
+        frees.setMask(state.frees);
+        actives.setMask(active);
+        moves.clear();
+        nextPick = pieceOf(state.nextPick);
+        turn = (byte) state.turn;
+        gameover = state.gameover;
+        draw = state.draw;
+    }
+
+    /**
+     * Returns the current position in the notation of Position, from which Position.read can rebuild the game.
+     * @return String
+     */
+    public String position()
+    {
+        return Position.write(this);
+    }
+
+    /**
+     * Returns the Zobrist hash of the current position. Maintained incrementally by makeMove and undoTurn.
+     * @return long
+     */
+    public long hash()
+    {
+        return bits.hash();
+    }
+
+    /**
+     * Returns the piece with the given value, or null if no such piece exists.
+     * @param value int
+     * @return Piece
+     */
+    public Piece pieceOf(int value)
+    {
+        return (value < 0 || value >= pieceByValue.length)? null : pieceByValue[value];
+    }
+
+    /**
+     * Converts a cell index and a piece value from a BitBoard into a Move placing the current next pick.
+     * @param cell int
+     * @param pick int
+     * @return Move
+     */
+    public Move toMove(int cell, int pick)
+    {
+        int n = dim();
+        return (cell == BitBoard.NONE)? new Move(nextPick, -1, -1, pieceOf(pick)) :
+                                        new Move(nextPick, cell % n, cell / n, pieceOf(pick));
+    }
+
+    /**
+     * Returns the side length of the game board used.
+     * @return int
+     */
+    public int dim()
+    {
+        return board.xLength;
+    }
+
+    /**
+     * Sets up all the piece types. The pieces come from the shared catalog, so games of the same variant share them.
+     */
+    protected void setupPieces()
+    {
+        int n = atts.size();
+        pieceByValue = PieceCatalog.of(atts);
+        frees = new PieceSet(pieceByValue, (n == 6)? -1L : (1L << (1 << n)) - 1);
+        actives = new PieceSet(pieceByValue, 0);
+        bits = new BitBoard(winLines(), pieceByValue.length);
+        prevFlags = new byte[board.xLength * board.yLength + 1];
     }
 
     /**
@@ -362,13 +546,18 @@ public abstract class Game
     public boolean checkAllSimilar(List<Piece> pieces, Piece p)
     {
         if(pieces == null || pieces.isEmpty()) return false;
-        Set<Att> intersect = new HashSet<>(p.getAtts());
-        for(Piece piece : pieces) intersect.retainAll(piece.getAtts());
-        return intersect.size() > 0;
+        int and = p.value, andNot = ~p.value;
+        for(Piece piece : pieces)
+        {
+            and &= piece.value;
+            andNot &= ~piece.value;
+        }
+        return ((and | andNot) & bits.pieceMask()) != 0;
     }
 
     /**
-     * Checks to see if there are any wins along a line.
+     * Checks to see if there are any wins along a line. Uses the running line masks of the BitBoard, so this is a
+     * couple of bit operations per line through the square.
      * @param p Piece
      * @param x int
      * @param y int
@@ -376,28 +565,11 @@ public abstract class Game
      */
     protected boolean checkLines(Piece p, int x, int y)
     {
-        int n = board.xLength;
-        boolean onYeqX = (x==y), onYeqNX = (x+y == n-1);
-        List<Piece> vert = new ArrayList<>(),  hrzn = new ArrayList<>(),
-                    diagP = new ArrayList<>(), diagN = new ArrayList<>();
-
-        // Add pieces from each line into their respective list
-        for(int i = 0; i < n; i++)
-        {
-            if (i != y && board.hasPiece(x,i)) hrzn.add(board.get(x,i));                // Vertical
-            if (i != x)
-            {
-                if(board.hasPiece(i,y)) vert.add(board.get(i,y));                       // Horizontal
-                if (onYeqX && board.hasPiece(i, i))      diagP.add(board.get(i,i));     // y = x
-                if (onYeqNX && board.hasPiece(i, n-1-i)) diagN.add(board.get(i,n-1-i)); // y = -x
-            }
-        }
-
-        // Aggregate the results
-        boolean hasWin = false;
-        List<Piece>[] lines = new List[]{vert, hrzn, diagP, diagN};
-        for(List<Piece> line : lines) hasWin |= ((line.size() >= dim()-1) && checkAllSimilar(line, p));
-        return hasWin;
+        if(!board.isValid(x, y)) return false;
+        int cell = bits.cell(x, y);
+        // On an occupied square the BitBoard only checks the lines as they are, so they must hold p
+        if(bits.isOccupied(cell) && bits.pieceAt(cell) != p.value) return false;
+        return bits.wins(cell, p.value);
     }
 
     /**
@@ -12,13 +12,13 @@ public class FirstAI extends GameAI
     public Move genMove(Game g)
     {
         int mvX = -1, mvY = -1;
-        for(int j = 0; j < g.dim() && mvY < 0; j++)
-            for (int i = 0; i < g.dim() && mvX < 0; i++)
-                if(g.isOpen(i,j))
-                {
-                    mvX = i;
-                    mvY = j;
-                }
+        long open = g.openCells();
+        if(open != 0)
+        {
+            int cell = Long.numberOfTrailingZeros(open);
+            mvX = cell % g.dim();
+            mvY = cell / g.dim();
+        }
         Piece pick = (g.getFrees().isEmpty())? null : g.getFrees().get(0);
         return new Move(null, mvX, mvY, pick);
     }
@@ -1,5 +1,6 @@
 package model.Game.GameAI;
 
+import model.Game.BitBoard;
 import model.Game.Game;
 import model.Game.Move;
 import model.Piece;
@@ -26,10 +27,12 @@ public abstract class GameAI
         List<Piece> frees = g.getFrees();
         Piece nextPick = g.getNextPick();
         Piece randomP = (frees.isEmpty())? null : frees.get(new Random().nextInt(frees.size()));
-        for(int y = 0; y < g.dim(); y++)
-            for(int x = 0; x < g.dim(); x++)
-                if(g.isOpen(x,y) && g.checkWin(nextPick, x, y))
-                    return new Move(nextPick, x, y, randomP);
+        int n = g.dim();
+        for(long cs = g.openCells(); cs != 0; cs &= cs - 1)
+        {
+            int cell = Long.numberOfTrailingZeros(cs), x = cell % n, y = cell / n;
+            if(g.checkWin(nextPick, x, y)) return new Move(nextPick, x, y, randomP);
+        }
         return null;
     }
 
@@ -41,21 +44,77 @@ public abstract class GameAI
      */
     public static List<Move> genAllMoves(Game g)
     {
-        List<Move> moves = new ArrayList<>();
-        Piece placed = g.getNextPick();
-        int n = g.dim();
-        for(int x = 0; x < n; x++)
-            for(int y = 0; y < n; y++)
-                if(g.isOpen(x,y))
-                {
-                    List<Piece> frees = g.getFrees();
-                    if(frees.isEmpty()) moves.add(new Move(placed, x, y, null));
-                    else for(Piece p : g.getFrees())
-                        moves.add(new Move(placed, x, y, p));
-                }
+        BitBoard b = g.bitBoard();
+        int[] buf = new int[maxMoves(b)];
+        int count = genMoves(b, buf, 0);
+        List<Move> moves = new ArrayList<>(count);
+        for(int i = 0; i < count; i++)
+            moves.add(g.toMove(Move.cellOf(buf[i]), Move.pickOf(buf[i])));
         return moves;
     }
 
+    /**
+     * Generates all possible moves of a BitBoard position as encoded ints (see Move.encode), writing them into the
+     * buffer starting at offset. Returns the number of moves written. Allocates nothing, so searches can reuse one
+     * buffer per ply.
+     * @param b BitBoard
+     * @param buf int[]
+     * @param offset int
+     * @return int
+     */
+    public static int genMoves(BitBoard b, int[] buf, int offset)
+    {
+        int n = offset;
+        long frees = b.frees();
+        for(long cs = b.openCells(); cs != 0; cs &= cs - 1)
+        {
+            int cell = Long.numberOfTrailingZeros(cs);
+            if(frees == 0) buf[n++] = Move.encode(cell, BitBoard.NONE);
+            else for(long ps = frees; ps != 0; ps &= ps - 1)
+                buf[n++] = Move.encode(cell, Long.numberOfTrailingZeros(ps));
+        }
+        return n - offset;
+    }
+
+    /**
+     * Like genMoves, but leaves out picks that hand the opponent an immediate win when there is a safe pick for the same
+     * cell. If every pick for a cell is poison, the cell gets a single move with the first of them, since they all
+     * lose the same way. The set of poison pieces is computed from the line masks, so no move has to be tried.
+     * @param b BitBoard
+     * @param buf int[]
+     * @param offset int
+     * @return int
+     */
+    public static int genSafeMoves(BitBoard b, int[] buf, int offset)
+    {
+        int n = offset, piece = b.nextPick();
+        long frees = b.frees();
+        for(long cs = b.openCells(); cs != 0; cs &= cs - 1)
+        {
+            int cell = Long.numberOfTrailingZeros(cs);
+            if(frees == 0)
+            {
+                buf[n++] = Move.encode(cell, BitBoard.NONE);
+                continue;
+            }
+            long safe = frees & ~b.poisonAfter(cell, piece);
+            if(safe == 0) safe = Long.lowestOneBit(frees);
+            for(long ps = safe; ps != 0; ps &= ps - 1)
+                buf[n++] = Move.encode(cell, Long.numberOfTrailingZeros(ps));
+        }
+        return n - offset;
+    }
+
+    /**
+     * Returns an upper bound on the number of moves genMoves writes for the position or any position after it.
+     * @param b BitBoard
+     * @return int
+     */
+    public static int maxMoves(BitBoard b)
+    {
+        return Math.max(1, Long.bitCount(b.openCells())) * Math.max(1, Long.bitCount(b.frees()));
+    }
+
     /**
      * Generates a random first move. Returns null if game not actually on the first move.
      * @param g Game
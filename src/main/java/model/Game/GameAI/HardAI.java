@@ -1,149 +1,342 @@
 package model.Game.GameAI;
 
+import model.Game.BitBoard;
 import model.Game.Game;
 import model.Game.Move;
-import model.Piece;
+import model.Game.Symmetry;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import java.util.ArrayList;
-import java.util.List;
-import static java.lang.Integer.max;
 import static java.lang.Integer.min;
-import static model.Game.GameAI.TranpositionTable.TTFlag.*;
+import static java.lang.Long.max;
 
 /**
  * More advanced AI that uses a search tree to look for moves. Would not recommend using on Custom Quarto game without
- * further optimizations.
+ * further optimizations. The search runs on a private BitBoard copy of the game, so the live game is never mutated.
+ * The search itself lives in Searcher, one per thread. Moves are found by iterative deepening under a time limit, so
+ * the AI answers in about the same time on every board size and plays the best move of the deepest finished search.
  */
 public class HardAI extends GameAI
 {
+    public static final long DEFAULT_TIME_MS = 2000;
+
+    // Half width of the window the next iteration is searched in around the last score
+    private static final int ASPIRATION = 2;
+
+    private final int ttMegabytes;
+    private TranpositionTable tt;
+    private int threads = 1;
+    private long timeLimit = DEFAULT_TIME_MS;
+    private int maxDepth = 0;
+
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private Searcher[] searchers;
+    private long nodes = 0;
+    private long cutoffs = 0;
+    private long firstCutoffs = 0;
+    private int lastScore = 0;
+
+    /**
+     * Constructs a HardAI with a transposition table of the default size.
+     */
+    public HardAI()
+    {
+        this(TranpositionTable.DEFAULT_MB);
+    }
+
+    /**
+     * Constructs a HardAI whose transposition table uses the given number of megabytes. The table is only allocated
+     * once the AI first searches.
+     * @param ttMegabytes int
+     */
+    public HardAI(int ttMegabytes)
+    {
+        this.ttMegabytes = ttMegabytes;
+    }
 
-    private TranpositionTable tt = new TranpositionTable();
+    /**
+     * Constructs a HardAI whose transposition table uses the given number of megabytes and that searches with the
+     * given number of threads.
+     * @param ttMegabytes int
+     * @param threads int
+     */
+    public HardAI(int ttMegabytes, int threads)
+    {
+        this(ttMegabytes);
+        setThreads(threads);
+    }
 
-    private final int MAX_SCORE =  10;
-    private final int MIN_SCORE = -10;
+    /**
+     * Constructs a HardAI that searches with the given transposition table, e.g. an OffHeapTable for deep analysis.
+     * The caller keeps ownership of the table and is responsible for releasing it.
+     * @param table TranpositionTable
+     */
+    public HardAI(TranpositionTable table)
+    {
+        this.ttMegabytes = TranpositionTable.DEFAULT_MB;
+        this.tt = table;
+    }
 
+    /**
+     * Sets the number of threads to search with. With more than one, helper threads search the same tree alongside
+     * the main search and share what they find through the transposition table (Lazy SMP). With one, the search is
+     * deterministic.
+     * @param threads int
+     */
+    public void setThreads(int threads)
+    {
+        if(threads < 1) throw new IllegalArgumentException("Need at least one search thread: " + threads);
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the number of threads the AI searches with.
+     * @return int
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Sets how many milliseconds the AI may spend on each move, or 0 to search without a time limit.
+     * @param millis long
+     */
+    public void setTimeLimit(long millis)
+    {
+        if(millis < 0) throw new IllegalArgumentException("Negative time limit: " + millis);
+        this.timeLimit = millis;
+    }
+
+    /**
+     * Returns how many milliseconds the AI may spend on each move, 0 if there is no limit.
+     * @return long
+     */
+    public long getTimeLimit()
+    {
+        return timeLimit;
+    }
+
+    /**
+     * Sets the deepest search the AI runs, or 0 to deepen until the end of the game or the time limit. With a
+     * single thread and no time limit, the AI always plays the same move in the same position.
+     * @param depth int
+     */
+    public void setMaxDepth(int depth)
+    {
+        if(depth < 0) throw new IllegalArgumentException("Negative search depth: " + depth);
+        this.maxDepth = depth;
+    }
 
     public Move genMove(Game g)
     {
-        int maxDepth = 7 - g.dim();
+        return genMove(g, (timeLimit == 0)? 0 : System.currentTimeMillis() + timeLimit);
+    }
+
+    /**
+     * Generates a move, searching until the given System.currentTimeMillis deadline at the latest. A deadline of 0
+     * means no deadline.
+     * @param g Game
+     * @param deadline long
+     * @return Move
+     */
+    public Move genMove(Game g, long deadline)
+    {
         if(g.getNextPick() == null) return randomFirstMove(g);
         Move winMove = findWin(g);
         if(winMove != null) return winMove;
-        return bestMove(g, maxDepth);
+        long nanos = (deadline == 0)? 0 : System.nanoTime() + (deadline - System.currentTimeMillis()) * 1000000;
+        return bestMove(g, nanos);
     }
 
     /**
-     * Searches the game tree for the best move. This is where the root call for negamax occurs
+     * Searches the game tree for the best move by iterative deepening. This is where the root call for negamax occurs.
+     * Each iteration searches the best move of the previous one first, and once the deadline passes the best move of
+     * the last iteration is played. An iteration cut short still counts if it finished that first move, as any move it
+     * then prefers was compared against it at the new depth, unless the move fell below the iteration's aspiration
+     * window. Each iteration after the first starts in a narrow window around the last score and only widens it if
+     * the score falls outside. The main search runs on the calling thread and decides the move; helpers deepen on
+     * their own, the odd ones out one ply ahead, until the main search is done.
      * @param g Game
-     * @param maxDepth int
+     * @param deadline long System.nanoTime, or 0 for none
      * @return Move
      */
-    private Move bestMove(Game g, int maxDepth)
+    private Move bestMove(Game g, long deadline)
     {
         long startTime = System.nanoTime();
-        List<Move> allMoves = genAllMoves(g);
-        int bestScore = MIN_SCORE;
-        Move bestMove = null;
-
-        maxDepth += 150 / max(75, allMoves.size());
-        System.out.print("Root size: " + allMoves.size() + ", time: ");
-        tt.clear();
-        for(Move m : allMoves)
+        BitBoard b = g.bitBoard();
+        int[] rootMoves = new int[maxMoves(b)];
+        int allMoves = genSafeMoves(b, rootMoves, 0);
+        int rootSize = uniqueMoves(b, rootMoves, allMoves);
+        int maxPlies = Long.bitCount(b.openCells());
+        int lastDepth = (maxDepth == 0)? maxPlies : min(maxDepth, maxPlies);
+
+        System.out.print("Root size: " + rootSize + " of " + allMoves + ", ");
+        if(tt == null) tt = new TranpositionTable(ttMegabytes);
+        else tt.clear();
+        if(searchers == null || searchers.length != threads)
+        {
+            searchers = new Searcher[threads];
+            for(int i = 0; i < threads; i++) searchers[i] = new Searcher(tt, i, threads, stop);
+        }
+        for(Searcher s : searchers) s.newSearch();
+        stop.set(false);
+        Thread[] helpers = new Thread[threads - 1];
+        for(int i = 1; i < threads; i++)
         {
-            g.makeMove(m, true);
-            int score = negamax(g, maxDepth, MIN_SCORE, MAX_SCORE, 1);
-            g.undoTurn(true);
-            if(score >= bestScore)
+            Searcher s = searchers[i];
+            BitBoard copy = new BitBoard(b);
+            int[] moves = rootMoves.clone();
+            int start = 1 + (i & 1);
+            helpers[i - 1] = new Thread(() ->
             {
-                bestScore = score;
-                bestMove = m;
+                for(int d = start; d <= lastDepth && !stop.get(); d++)
+                    s.searchRoot(copy, moves, rootSize, d, Searcher.MIN_SCORE, Searcher.MAX_SCORE);
+            }, "HardAI helper " + i);
+            helpers[i - 1].setDaemon(true);
+            helpers[i - 1].start();
+        }
+        Searcher main = searchers[0];
+        main.setDeadline(deadline);
+        int bestMove = rootMoves[0], depth = 0, score = 0;
+        for(int d = 1; d <= lastDepth; d++)
+        {
+            // Aspiration window around the last score, opened up on the side it fails on
+            int alpha = (d == 1)? Searcher.MIN_SCORE : score - ASPIRATION;
+            int beta = (d == 1)? Searcher.MAX_SCORE : score + ASPIRATION;
+            int mv = main.searchRoot(b, rootMoves, rootSize, d, alpha, beta);
+            while(!main.stopped() && (main.bestScore() <= alpha || main.bestScore() >= beta))
+            {
+                if(main.bestScore() <= alpha) alpha = Searcher.MIN_SCORE;
+                else beta = Searcher.MAX_SCORE;
+                mv = main.searchRoot(b, rootMoves, rootSize, d, alpha, beta);
             }
+            if(main.completed() == 0 || main.bestScore() <= alpha) break;
+            bestMove = mv;
+            depth = d;
+            score = main.bestScore();
+            if(main.stopped() || score >= Searcher.WIN_SCORE) break;
+            moveToFront(rootMoves, rootSize, mv);
         }
-        System.out.println((System.nanoTime() - startTime)/1000000000.0);
-        return bestMove;
+        stop.set(true);
+        lastScore = score;
+        for(Thread t : helpers)
+        {
+            try
+            {
+                t.join();
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        nodes = cutoffs = firstCutoffs = 0;
+        for(Searcher s : searchers)
+        {
+            nodes += s.nodes();
+            cutoffs += s.cutoffs();
+            firstCutoffs += s.firstCutoffs();
+        }
+        System.out.println("depth: " + depth + ", time: " + (System.nanoTime() - startTime)/1000000000.0 +
+                           ", nodes: " + nodes + ", first move cutoffs: " +
+                           String.format("%.1f%%", 100 * firstCutoffRate()));
+        return g.toMove(Move.cellOf(bestMove), Move.pickOf(bestMove));
+    }
 
+    /**
+     * Returns the score of the move played by the last search, from the AI's point of view.
+     * @return int
+     */
+    int lastScore()
+    {
+        return lastScore;
     }
 
     /**
-     * Negamax search algorithm for searching through game states. Uses a Transposition Table to memoize nodes.
-     * @param g Game
-     * @param depth int
-     * @param alpha int
-     * @param beta int
-     * @param turn int
+     * Returns the number of nodes searched for the last move, over all threads.
+     * @return long
+     */
+    public long nodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * Returns the fraction of the cutoffs in the search for the last move that came from the first move tried, or 0 if
+     * there were none. The closer to 1, the better the move ordering.
+     * @return double
+     */
+    public double firstCutoffRate()
+    {
+        return (double) firstCutoffs / max(1, cutoffs);
+    }
+
+    /**
+     * Helper for dropping moves that lead to a position equivalent to that of an earlier move, as they have the same
+     * score. Keeps the order of the remaining moves and returns how many there are.
+     * @param b BitBoard
+     * @param moves int[]
+     * @param count int
      * @return int
      */
-    private int negamax(Game g, int depth, int alpha, int beta, int turn)
+    private static int uniqueMoves(BitBoard b, int[] moves, int count)
     {
-        // Table lookup
-        int alphaPrior = alpha;
-        TranpositionTable.TTEntry entry = tt.get(g);
-        if(entry != null && entry.depth >= depth)
+        Symmetry sym = Symmetry.of(b.lines());
+        Set<Long> seen = new HashSet<>();
+        long[] scratch = new long[Symmetry.SCRATCH_LENGTH];
+        int unique = 0;
+        for(int i = 0; i < count; i++)
         {
-            TranpositionTable.TTFlag flag = entry.flag;
-            if(flag == EXACT) return entry.value;
-            if(flag == UPPER) alpha = max(alpha, entry.value);
-            else beta = min(beta, entry.value);
+            int mv = moves[i];
+            b.make(Move.cellOf(mv), Move.pickOf(mv));
+            boolean fresh = seen.add(sym.canonicalKey(b, scratch));
+            b.unmake();
+            if(fresh) moves[unique++] = mv;
         }
-        // Tree search
-        if(depth == 0) return turn * countLines(g);
-        if(g.winner() != -1) return 1;
-        int best = MIN_SCORE;
-        for(Move mv : genAllMoves(g))
-        {
-            g.makeMove(mv, true);
-            int score = -negamax(g, depth-1, -beta, -alpha, -turn);
-            g.undoTurn(true);
-            best = max(best, score);
-            alpha = max(alpha, score);
-            if(alpha >= beta) break;
-        }
-        // Memoize the results
-        tt.add(g, depth, alphaPrior, beta, best);
-        return best;
+        return unique;
     }
 
     /**
-     * Helper for counting the number of nearly complete lines.
-     * @param g Game
+     * Helper for moving a move to the front of the list, keeping the order of the others.
+     * @param moves int[]
+     * @param count int
+     * @param move int
+     */
+    private static void moveToFront(int[] moves, int count, int move)
+    {
+        int i = 0;
+        while(i < count && moves[i] != move) i++;
+        if(i == count) return;
+        System.arraycopy(moves, 0, moves, 1, i);
+        moves[0] = move;
+    }
+
+    /**
+     * Helper for counting the number of nearly complete lines, i.e. lines missing one piece whose pieces all share
+     * an attribute.
+     * @param b BitBoard
      * @return int
      */
-    public static int countLines(Game g)
+    public static int countLines(BitBoard b)
     {
-        int n = g.dim(), count = 0;
-        // Count the Horizontal and Vertical lines
-        for(int j = 0; j < n; j++)
-        {
-            List<Piece> hrzn = new ArrayList<>(), vert = new ArrayList<>();
-            for (int i = 0; i < n; i++)
-            {
-                if(!g.isOpen(i,j)) hrzn.add(g.getPiece(i,j));
-                if(!g.isOpen(j,i)) vert.add(g.getPiece(j,i));
-            }
-            if(checkLine(g, hrzn)) count++;
-            if(checkLine(g, vert)) count++;
-        }
-        // Count the diagonals
-        List<Piece> diagP = new ArrayList<>(), diagN = new ArrayList<>();
-        for(int k = 0; k < n; k++)
-        {
-            if(!g.isOpen(k,k))     diagP.add(g.getPiece(k,k));
-            if(!g.isOpen(k,n-1-k)) diagN.add(g.getPiece(k,n-1-k));
-        }
-        if(checkLine(g, diagP)) count++;
-        if(checkLine(g, diagN)) count++;
+        int count = 0;
+        for(int l = 0, n = b.lines().count; l < n; l++)
+            if(checkLine(b, l)) count++;
         return count;
     }
 
     /**
-     * Checks if a line is nearly complete.
-     * @param g Game
-     * @param pieces List
+     * Checks if a line is nearly complete. Lines are numbered as in the board's LineTable.
+     * @param b BitBoard
+     * @param line int
      * @return boolean
      */
-    public static boolean checkLine(Game g, List<Piece> pieces)
+    public static boolean checkLine(BitBoard b, int line)
     {
-        return pieces.size() >= g.dim()-1 && g.checkAllSimilar(pieces, pieces.remove(0));
+        return b.lineCount(line) >= b.lines().lengthOf(line) - 1 && b.lineShared(line) != 0;
     }
 
     @Override
@@ -1,6 +1,7 @@
 package model.Game.GameAI;
 
 import model.Game.Game;
+import model.Game.LineTable;
 import model.Game.Move;
 import model.Piece;
 
@@ -15,7 +16,7 @@ public class NormalAI extends GameAI
         Move move = findWin(g);
         if(move != null) return move;
         int[] coords = pickCounterXY(g);
-        Piece nextPiece = pickCounterPiece(g);
+        Piece nextPiece = pickCounterPiece(g, coords);
         return new Move(null, coords[0], coords[1], nextPiece);
     }
 
@@ -27,70 +28,66 @@ public class NormalAI extends GameAI
      */
     private int[] pickCounterXY(Game g)
     {
-        // Compute all the similarity counts on the board
+        // Compute the similarity count of every line on the board
         int n = g.dim();
-        int[][] counts = new int[n][n];
-        Piece nextPick = g.getNextPick();
-        for(int y = 0; y < n; y++)
-            for(int x = 0; x < n; x++)
-                counts[x][y] = nextPick.countShared(g.getPiece(x,y));
+        LineTable lines = g.lines();
+        int[] lineScores = new int[lines.count];
+        int pick = g.getNextPick().value, mask = (1 << n) - 1;
+        for(int l = 0; l < lines.count; l++)
+            lineScores[l] = calcSimScore(g.lineValues(l), pick, n, mask);
 
-        // Find the xy coord that matches the least number of pieces
-        int bestX = -1, bestY = -1, minScore = Integer.MAX_VALUE;
-        for(int y = 0; y < n; y++)
-            for(int x = 0; x < n; x++)
+        // Find the cell that matches the least number of pieces
+        int bestCell = -1, minScore = Integer.MAX_VALUE;
+        for(long cs = g.openCells(); cs != 0; cs &= cs - 1)
+        {
+            int c = Long.numberOfTrailingZeros(cs), score = 0;
+            // The open cell itself counts as -1 on each of its lines, so add that back
+            for(int l : lines.linesOf(c)) score += lineScores[l] + 1;
+            if (score < minScore)
             {
-                if(!g.isOpen(x,y)) continue;
-                int score = calcSimScore(counts, x, y);
-                if (score < minScore)
-                {
-                    minScore = score;
-                    bestX = x;
-                    bestY = y;
-                }
+                minScore = score;
+                bestCell = c;
             }
-        return new int[] {bestX, bestY};
+        }
+        return (bestCell < 0)? new int[] {-1, -1} : new int[] {bestCell % n, bestCell / n};
     }
 
     /**
-     * Helper for calculating the similarity score for a coordinate on the board. Similarity is defined as the number of
-     * total attributes shared in a horizontal, vertical, and diagonal line from a given coordinate.
-     * @param counts int[][]
-     * @param x int
-     * @param y int
-     * @return int[]
+     * Helper for calculating the similarity score of a line. Similarity is defined as the number of total attributes
+     * the pieces on the line share with the given piece, where each empty cell counts as -1.
+     * @param values int[]
+     * @param pick int
+     * @param numAtts int
+     * @param mask int
+     * @return int
      */
-    private int calcSimScore(int[][] counts, int x, int y)
+    private int calcSimScore(int[] values, int pick, int numAtts, int mask)
     {
-        int score = 0, n = counts.length;
-        boolean onYeqX = (x==y), onYeqNX = (x+y == n-1);
-        for(int i = 0; i < n; i++)
-        {
-            if (i != y) score += counts[x][i];          // Vertical
-            if (i != x)
-            {
-                score += counts[i][y];                  // Horizontal
-                if (onYeqX)  score += counts[i][i];     // y = x
-                if (onYeqNX) score += counts[i][n-1-i]; // y = -x
-            }
-        }
+        int score = 0;
+        for(int v : values)
+            score += (v < 0)? -1 : numAtts - Integer.bitCount((v ^ pick) & mask);
         return score;
     }
 
     /**
-     * Picks the next piece for the opponent. Picks the piece that shares the least number of attributes with the
-     * currently active pieces.
+     * Picks the next piece for the opponent. Never picks a piece that lets the opponent win right away after the next
+     * pick is placed on the given coords, unless every piece does. Otherwise picks the piece that shares the least
+     * number of attributes with the currently active pieces.
      * @param g Game
+     * @param coords int[]
      * @return Piece
      */
-    private Piece pickCounterPiece(Game g)
+    private Piece pickCounterPiece(Game g, int[] coords)
     {
         List<Piece> actives = new ArrayList<>(g.getActives());
         if(g.getNextPick() != null) actives.add(g.getNextPick());
+        List<Piece> poison = g.getPoisonPieces(coords[0], coords[1]);
+        boolean allPoison = poison.size() == g.getFrees().size();
         Piece mostDiff = null;
         int minScore = Integer.MAX_VALUE;
         for(Piece fp : g.getFrees())
         {
+            if(!allPoison && poison.contains(fp)) continue;
             int simScore = 0;
             for(Piece ap : actives) simScore += fp.countShared(ap);
             if(simScore < minScore)
@@ -4,7 +4,6 @@ import model.Game.Game;
 import model.Game.Move;
 import model.Piece;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
@@ -15,20 +14,15 @@ public class RandomAI extends GameAI
 {
     public Move genMove(Game g)
     {
-        List<int[]> freeSqrs = new ArrayList<>();
-        for(int j = 0; j < g.dim(); j++)
-            for (int i = 0; i < g.dim(); i++)
-                if(g.isOpen(i,j))
-                {
-                    int[] sqr = {i,j};
-                    freeSqrs.add(sqr);
-                }
+        long open = g.openCells();
         int mvX = -1, mvY = -1;
-        if(!freeSqrs.isEmpty())
+        if(open != 0)
         {
-            int[] sqr = freeSqrs.get(new Random().nextInt(freeSqrs.size()));
-            mvX = sqr[0];
-            mvY = sqr[1];
+            // Drop a random number of the lowest open cells and take the next one
+            for(int skip = new Random().nextInt(Long.bitCount(open)); skip > 0; skip--) open &= open - 1;
+            int cell = Long.numberOfTrailingZeros(open);
+            mvX = cell % g.dim();
+            mvY = cell / g.dim();
         }
         List<Piece> frees = g.getFrees();
         Piece pick = (frees.isEmpty())? null : frees.get(new Random().nextInt(frees.size()));
@@ -0,0 +1,407 @@
+package model.Game.GameAI;
+
+import model.Game.BitBoard;
+import model.Game.Move;
+import model.Game.Symmetry;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.lang.Integer.max;
+import static java.lang.Integer.min;
+import static model.Game.BitBoard.NONE;
+import static model.Game.GameAI.GameAI.genSafeMoves;
+import static model.Game.GameAI.GameAI.maxMoves;
+import static model.Game.GameAI.HardAI.countLines;
+import static model.Game.GameAI.TranpositionTable.*;
+
+/**
+ * The search state of one HardAI thread: its own board copy, move buffers and node count. Searchers running in
+ * parallel only share the transposition table and a stop flag. Searcher 0 is the main searcher and always visits
+ * moves in generation order, so a single searcher is fully deterministic; helpers start at different moves so they
+ * fill the table with different parts of the tree. A searcher may also be given a deadline, after which it stops on
+ * its own.
+ *
+ * Nodes with a few plies left to search are stored under their canonical key, so all equivalent positions share one
+ * table entry. Closer to the leaves the subtrees are too small to pay for working the key out, and past the first
+ * third of the game the pieces rarely leave any equivalent positions to find, so there the plain hash is used.
+ *
+ * Moves are tried best first: the table's best move (only for plain hash entries), then moves that set up a threat,
+ * then the killer moves of the ply (the last two moves there to cause a cutoff), then the rest by their history score,
+ * which grows each time a move causes a cutoff anywhere in the tree. The searcher counts how often a cutoff comes from
+ * the first move it tries. With the best move likely first, every other move is searched with a null window
+ * (principal variation search).
+ */
+class Searcher
+{
+    static final int MAX_SCORE =  100;
+    static final int MIN_SCORE = -100;
+    static final int WIN_SCORE =   50;
+    static final int DRAW_SCORE =   0;
+
+    // How many nodes to search between checks of the stop flag
+    private static final int POLL_MASK = (1 << 10) - 1;
+    // The least depth at which nodes are stored under their canonical key
+    private static final int CANON_DEPTH = 2;
+
+    // Move ordering tiers, above any history score
+    private static final int TT_MOVE = 1 << 30;
+    private static final int THREAT  = 1 << 29;
+    private static final int KILLER  = 1 << 28;
+    private static final int MAX_HISTORY = KILLER - 1;
+
+    private final TranpositionTable tt;
+    private final int id;
+    private final int threads;
+    private final AtomicBoolean stop;
+
+    private BitBoard b;
+    private Symmetry symmetry;
+    private final long[] canonScratch = new long[Symmetry.SCRATCH_LENGTH];
+    private int canonPlaced;
+    private int[][] moveBufs;
+    private int[][] scoreBufs;
+    private int[][] killers;
+    private final int[] history = new int[BitBoard.MAX_CELLS * BitBoard.MAX_PIECES];
+    private long cutoffs = 0;
+    private long firstCutoffs = 0;
+    private long deadline = 0;
+    private long nodes = 0;
+    private boolean stopped = false;
+    private int bestScore;
+    private int completed;
+
+    /**
+     * Constructs the searcher with the given id out of the given number of threads.
+     * @param tt TranpositionTable
+     * @param id int
+     * @param threads int
+     * @param stop AtomicBoolean
+     */
+    Searcher(TranpositionTable tt, int id, int threads, AtomicBoolean stop)
+    {
+        this.tt = tt;
+        this.id = id;
+        this.threads = threads;
+        this.stop = stop;
+    }
+
+    /**
+     * Searches the root moves to the given depth within the given window and returns the best one, encoded as in
+     * Move.encode. Returns NONE for both cell and pick if there are no moves. As in negamax, the first move gets the
+     * whole window and the others are only searched in full if a null window shows they beat it. A best score at or
+     * below alpha only bounds the true score from above, and one at or above beta from below, in which case the rest
+     * of the moves are skipped. If the search was stopped before it finished, stopped() returns true and the result is
+     * the best of the first completed() root moves only.
+     * @param board BitBoard
+     * @param rootMoves int[]
+     * @param rootSize int
+     * @param depth int
+     * @param alpha int
+     * @param beta int
+     * @return int
+     */
+    int searchRoot(BitBoard board, int[] rootMoves, int rootSize, int depth, int alpha, int beta)
+    {
+        b = board;
+        symmetry = Symmetry.of(board.lines());
+        canonPlaced = board.size / 3;
+        stopped = false;
+        allocMoveBuffers(depth + 2);
+        int best = Move.encode(NONE, NONE), offset = (rootSize * id) / threads;
+        bestScore = MIN_SCORE;
+        completed = 0;
+        for(int k = 0; k < rootSize && !stopped; k++)
+        {
+            int mv = rootMoves[(k + offset) % rootSize];
+            b.make(Move.cellOf(mv), Move.pickOf(mv));
+            int score = search(depth, 1, alpha, beta, k == 0);
+            b.unmake();
+            if(stopped) break;
+            if(score > bestScore)
+            {
+                bestScore = score;
+                best = mv;
+            }
+            completed++;
+            alpha = max(alpha, score);
+            if(alpha >= beta) break;
+        }
+        return best;
+    }
+
+    /**
+     * Helper for making sure there is a move buffer for every ply of the search, each big enough for any position
+     * after the root. Buffers are reused across searches.
+     * @param plies int
+     */
+    private void allocMoveBuffers(int plies)
+    {
+        int size = maxMoves(b);
+        if(moveBufs == null || moveBufs.length < plies || moveBufs[0].length < size)
+        {
+            moveBufs = new int[plies][size];
+            scoreBufs = new int[plies][size];
+        }
+        if(killers == null || killers.length < plies)
+        {
+            killers = new int[plies][2];
+            for(int[] killer : killers) Arrays.fill(killer, NONE);
+        }
+    }
+
+    /**
+     * Helper for scoring the generated moves for ordering. Helpers rotate the moves first, so they break ties
+     * differently from the main searcher and from each other.
+     * @param moves int[]
+     * @param scores int[]
+     * @param count int
+     * @param ttMove int
+     * @param ply int
+     */
+    private void scoreMoves(int[] moves, int[] scores, int count, int ttMove, int ply)
+    {
+        int rotate = id % count;
+        if(rotate != 0)
+        {
+            reverse(moves, 0, count);
+            reverse(moves, 0, count - rotate);
+            reverse(moves, count - rotate, count);
+        }
+        int piece = b.nextPick(), lastCell = NONE, threats = 0;
+        int[] killer = killers[ply];
+        for(int i = 0; i < count; i++)
+        {
+            int mv = moves[i], cell = Move.cellOf(mv);
+            if(cell != lastCell)
+            {
+                threats = b.threatsAfter(cell, piece);
+                lastCell = cell;
+            }
+            if(mv == ttMove) scores[i] = TT_MOVE;
+            else if(threats > 0) scores[i] = THREAT + threats;
+            else if(mv == killer[0]) scores[i] = KILLER + 1;
+            else if(mv == killer[1]) scores[i] = KILLER;
+            else scores[i] = history[historyIndex(mv)];
+        }
+    }
+
+    /**
+     * Helper for swapping the best scored of the remaining moves into position k and returning it.
+     * @param moves int[]
+     * @param scores int[]
+     * @param k int
+     * @param count int
+     * @return int
+     */
+    private static int nextMove(int[] moves, int[] scores, int k, int count)
+    {
+        int best = k;
+        for(int i = k + 1; i < count; i++)
+            if(scores[i] > scores[best]) best = i;
+        int mv = moves[best];
+        moves[best] = moves[k];
+        moves[k] = mv;
+        int score = scores[best];
+        scores[best] = scores[k];
+        scores[k] = score;
+        return mv;
+    }
+
+    private static void reverse(int[] a, int from, int to)
+    {
+        for(int i = from, j = to - 1; i < j; i++, j--)
+        {
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    /**
+     * Helper for recording a move that caused a cutoff at the given ply and depth.
+     * @param mv int
+     * @param ply int
+     * @param depth int
+     */
+    private void recordCutoff(int mv, int ply, int depth)
+    {
+        int[] killer = killers[ply];
+        if(killer[0] != mv)
+        {
+            killer[1] = killer[0];
+            killer[0] = mv;
+        }
+        int h = historyIndex(mv);
+        history[h] = Math.min(MAX_HISTORY, history[h] + depth * depth);
+    }
+
+    private static int historyIndex(int mv)
+    {
+        return Move.cellOf(mv) * BitBoard.MAX_PIECES + (Move.pickOf(mv) & (BitBoard.MAX_PIECES - 1));
+    }
+
+    /**
+     * Negamax search algorithm for searching through game states. Uses a Transposition Table to memoize nodes. Scores
+     * are from the perspective of the player who has to place the board's next pick. Moves are generated into the
+     * buffer of the current ply, so the search allocates nothing. Once stopped, returns at once without storing
+     * anything in the table.
+     * @param depth int
+     * @param ply int
+     * @param alpha int
+     * @param beta int
+     * @return int
+     */
+    private int negamax(int depth, int ply, int alpha, int beta)
+    {
+        if((++nodes & POLL_MASK) == 0 && (stop.get() || (deadline != 0 && System.nanoTime() - deadline >= 0)))
+            stopped = true;
+        if(stopped) return 0;
+        // Once every line is dead nobody can win, so the score is exact and there is nothing left to search
+        if(b.liveLines() == 0) return DRAW_SCORE;
+        // Table lookup
+        int alphaPrior = alpha;
+        boolean canonical = depth >= CANON_DEPTH && b.placed() <= canonPlaced;
+        long key = canonical? symmetry.canonicalKey(b, canonScratch) : b.hash();
+        long entry = tt.probe(key);
+        if(entry != 0 && depth(entry) >= depth)
+        {
+            int flag = flag(entry), value = value(entry);
+            if(flag == EXACT) return value;
+            if(flag == LOWER) alpha = max(alpha, value);
+            else beta = min(beta, value);
+            if(alpha >= beta) return value;
+        }
+        // Terminal checks: a placement that wins, or the last placement that doesn't
+        int piece = b.nextPick();
+        long open = b.openCells();
+        for(long cs = open; cs != 0; cs &= cs - 1)
+            if(b.wins(Long.numberOfTrailingZeros(cs), piece)) return WIN_SCORE;
+        if(Long.bitCount(open) == 1) return DRAW_SCORE;
+        if(depth == 0) return -countLines(b);
+        // Tree search, best looking moves first
+        int[] moves = moveBufs[ply], scores = scoreBufs[ply];
+        int count = genSafeMoves(b, moves, 0);
+        // A canonical entry may come from an equivalent position, where its move means another cell and pick
+        scoreMoves(moves, scores, count, (entry != 0 && !canonical)? move(entry) : NONE, ply);
+        int best = MIN_SCORE, bestMove = 0;
+        for(int k = 0; k < count; k++)
+        {
+            int mv = nextMove(moves, scores, k, count);
+            b.make(Move.cellOf(mv), Move.pickOf(mv));
+            int score = search(depth-1, ply+1, alpha, beta, k == 0);
+            b.unmake();
+            if(stopped) return 0;
+            if(score > best)
+            {
+                best = score;
+                bestMove = mv;
+            }
+            alpha = max(alpha, score);
+            if(alpha >= beta)
+            {
+                cutoffs++;
+                if(k == 0) firstCutoffs++;
+                recordCutoff(mv, ply, depth);
+                break;
+            }
+        }
+        // Memoize the results
+        tt.add(key, depth, alphaPrior, beta, best, bestMove);
+        return best;
+    }
+
+    /**
+     * Helper for searching the move just made, as seen by the player who made it (principal variation search). The
+     * first move of a node is searched with the full window. Later moves are expected to be no better, which a null
+     * window around alpha proves cheaply; only the ones that turn out better are searched again with the full window
+     * to find out by how much.
+     * @param depth int
+     * @param ply int
+     * @param alpha int
+     * @param beta int
+     * @param first boolean
+     * @return int
+     */
+    private int search(int depth, int ply, int alpha, int beta, boolean first)
+    {
+        if(first) return -negamax(depth, ply, -beta, -alpha);
+        int score = -negamax(depth, ply, -alpha-1, -alpha);
+        if(score > alpha && score < beta && !stopped) score = -negamax(depth, ply, -beta, -alpha);
+        return score;
+    }
+
+    /**
+     * Returns the score of the best move of the last completed root search.
+     * @return int
+     */
+    int bestScore()
+    {
+        return bestScore;
+    }
+
+    /**
+     * Returns the number of root moves the last root search finished searching.
+     * @return int
+     */
+    int completed()
+    {
+        return completed;
+    }
+
+    /**
+     * Sets the System.nanoTime after which the searcher stops, or 0 to search until stopped by the flag.
+     * @param deadline long
+     */
+    void setDeadline(long deadline)
+    {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Returns true if the last root search was stopped before it finished.
+     * @return boolean
+     */
+    boolean stopped()
+    {
+        return stopped;
+    }
+
+    /**
+     * Returns the number of nodes searched since the last call to newSearch.
+     * @return long
+     */
+    long nodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of cutoffs since the last call to newSearch.
+     * @return long
+     */
+    long cutoffs()
+    {
+        return cutoffs;
+    }
+
+    /**
+     * Returns the number of cutoffs caused by the first move tried since the last call to newSearch.
+     * @return long
+     */
+    long firstCutoffs()
+    {
+        return firstCutoffs;
+    }
+
+    /**
+     * Prepares for the search of a new position: forgets the killers and history, and resets the counters.
+     */
+    void newSearch()
+    {
+        Arrays.fill(history, 0);
+        if(killers != null)
+            for(int[] killer : killers) Arrays.fill(killer, NONE);
+        nodes = cutoffs = firstCutoffs = 0;
+    }
+}
@@ -1,63 +1,135 @@
 package model.Game.GameAI;
 
-import model.Game.Game;
-
-import java.util.HashMap;
-import java.util.Map;
-import static model.Game.GameAI.TranpositionTable.TTFlag.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 
 /**
- * Class for logging gamestates when doing a search
+ * Class for logging gamestates when doing a search. Entries are keyed by the Zobrist hash of the position, or by its
+ * Symmetry canonical key, and stored in a preallocated long array sized from a memory budget, so storing an entry
+ * never allocates.
+ *
+ * Each entry is packed into a single long:
+ *   bits  0-7   value (signed)
+ *   bits  8-13  depth
+ *   bits 14-15  flag (LOWER, UPPER or EXACT, never 0 so an empty slot is always 0)
+ *   bits 16-31  best move
+ *   bits 32-63  upper half of the hash, used to verify the entry belongs to the probed position
+ *
+ * The table is split into buckets of two slots. The first slot keeps the deepest entry seen for the bucket, the
+ * second slot is always replaced.
+ *
+ * The table is lock-free and may be shared by several searching threads. Every slot is read and written as one
+ * atomic long and entries carry their own hash check, so a racing write can at worst replace a useful entry, never
+ * hand a probe an entry that mixes two positions.
  */
 public class TranpositionTable
 {
-    enum TTFlag {LOWER, UPPER, EXACT}
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+    public static final int EXACT = 3;
+
+    public static final int DEFAULT_MB = 32;
+    public static final int MAX_DEPTH = 63;
+
+    protected static final int SLOTS = 2;
+    private static final long MAX_HEAP_BUCKETS = 1L << 29;
 
-    private Map<String, TTEntry> table = new HashMap<>();
+    private static final int SAMPLE_SLOTS = 1 << 16;
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private long[] table;
+    protected final long bucketMask;
 
     /**
-     * Struct representing a gamestate entry
+     * Constructs a table using the default memory budget.
      */
-    public class TTEntry
+    public TranpositionTable()
     {
-        public final int value;
-        public final int depth;
-        public final TTFlag flag;
+        this(DEFAULT_MB);
+    }
 
-        public TTEntry(int v, int d, TTFlag f)
-        {
-            value = v;
-            depth = d;
-            flag = f;
-        }
+    /**
+     * Constructs a table that uses at most the given number of megabytes. The number of buckets is rounded down to a
+     * power of two.
+     * @param megabytes int
+     */
+    public TranpositionTable(int megabytes)
+    {
+        this(Math.min(bucketsFor(megabytes), MAX_HEAP_BUCKETS), true);
+    }
+
+    /**
+     * Constructs a table with the given number of buckets, a power of two. Subclasses that keep the entries somewhere
+     * other than the on-heap array pass false for allocate.
+     * @param buckets long
+     * @param allocate boolean
+     */
+    protected TranpositionTable(long buckets, boolean allocate)
+    {
+        bucketMask = buckets - 1;
+        table = allocate? new long[(int) buckets * SLOTS] : null;
+    }
+
+    /**
+     * Returns the number of buckets that fit in the given number of megabytes, rounded down to a power of two.
+     * @param megabytes long
+     * @return long
+     */
+    protected static long bucketsFor(long megabytes)
+    {
+        return Long.highestOneBit(Math.max(1, (megabytes << 20) / (SLOTS * Long.BYTES)));
     }
 
     /**
      * Adds a gamestate entry to the table
-     * @param g Game
+     * @param hash long
      * @param depth int
      * @param alphaPrior int
      * @param beta int
      * @param bestScore int
+     * @param bestMove int
      */
-    public void add(Game g, int depth, int alphaPrior, int beta, int bestScore)
+    public void add(long hash, int depth, int alphaPrior, int beta, int bestScore, int bestMove)
     {
-        TTFlag flag;
+        int flag;
         if(bestScore <= alphaPrior) flag = UPPER;
         else if (bestScore >= beta) flag = LOWER;
         else flag = EXACT;
-        TTEntry entry = new TTEntry(bestScore, depth, flag);
-        table.put(g.boardState(), entry);
+        store(hash, depth, flag, bestScore, bestMove);
+    }
+
+    /**
+     * Stores an entry. Replaces the depth-preferred slot if the entry is for the same position or is at least as deep
+     * as the one there, and the always-replace slot otherwise.
+     * @param hash long
+     * @param depth int
+     * @param flag int
+     * @param value int
+     * @param move int
+     */
+    public void store(long hash, int depth, int flag, int value, int move)
+    {
+        long entry = pack(hash, depth, flag, value, move);
+        long i = index(hash);
+        long deep = load(i);
+        if(deep == 0 || verify(deep, hash) || depth >= depth(deep)) save(i, entry);
+        else save(i + 1, entry);
     }
 
     /**
-     * Retrieves an entry from the table.
-     * @param g Game
-     * @return TTEntry
+     * Retrieves the entry for the position with the given hash. Returns 0 if the position is not in the table.
+     * @param hash long
+     * @return long
      */
-    public TTEntry get(Game g)
+    public long probe(long hash)
     {
-        return table.get(g.boardState());
+        long i = index(hash);
+        long e = load(i);
+        if(e != 0 && verify(e, hash)) return e;
+        e = load(i + 1);
+        if(e != 0 && verify(e, hash)) return e;
+        return 0;
     }
 
     /**
@@ -65,6 +137,108 @@ public class TranpositionTable
      */
     public void clear()
     {
-        table.clear();
+        Arrays.fill(table, 0);
+    }
+
+    /**
+     * Returns the fraction of occupied slots. Large tables are estimated from a sample of slots spread evenly over the
+     * whole table.
+     * @return double
+     */
+    public double occupancy()
+    {
+        long slots = capacity(), step = Math.max(1, slots / SAMPLE_SLOTS), used = 0, seen = 0;
+        for(long i = 0; i < slots; i += step, seen++)
+            if(load(i) != 0) used++;
+        return (double) used / seen;
+    }
+
+    /**
+     * Frees the memory held by the table. The table must not be used afterwards.
+     */
+    public void release()
+    {
+        table = null;
+    }
+
+    /**
+     * Returns the number of slots in the table.
+     * @return long
+     */
+    public long capacity()
+    {
+        return (bucketMask + 1) * SLOTS;
+    }
+
+    /**
+     * Returns the index of the first slot of the bucket for the given hash.
+     * @param hash long
+     * @return long
+     */
+    protected long index(long hash)
+    {
+        return (hash & bucketMask) * SLOTS;
+    }
+
+    /**
+     * Reads the slot at the given index. Overrides must read the slot atomically.
+     * @param i long
+     * @return long
+     */
+    protected long load(long i)
+    {
+        return (long) SLOT.getOpaque(table, (int) i);
+    }
+
+    /**
+     * Writes the slot at the given index. Overrides must write the slot atomically.
+     * @param i long
+     * @param entry long
+     */
+    protected void save(long i, long entry)
+    {
+        SLOT.setOpaque(table, (int) i, entry);
+    }
+
+    /* ============================================== ENTRY PACKING ================================================= */
+
+    /**
+     * Packs an entry into a long.
+     * @param hash long
+     * @param depth int
+     * @param flag int
+     * @param value int
+     * @param move int
+     * @return long
+     */
+    public static long pack(long hash, int depth, int flag, int value, int move)
+    {
+        return (hash & 0xFFFFFFFF00000000L) | ((long) (move & 0xFFFF) << 16) | (flag << 14) |
+               (Math.min(depth, MAX_DEPTH) << 8) | (value & 0xFF);
+    }
+
+    public static boolean verify(long entry, long hash)
+    {
+        return ((entry ^ hash) & 0xFFFFFFFF00000000L) == 0;
+    }
+
+    public static int value(long entry)
+    {
+        return (byte) entry;
+    }
+
+    public static int depth(long entry)
+    {
+        return (int) (entry >>> 8) & MAX_DEPTH;
+    }
+
+    public static int flag(long entry)
+    {
+        return (int) (entry >>> 14) & 3;
+    }
+
+    public static int move(long entry)
+    {
+        return (int) (entry >>> 16) & 0xFFFF;
     }
 }
@@ -0,0 +1,125 @@
+package model.Game;
+
+/**
+ * Immutable snapshot of a game position made only of primitive fields, so it can be shared between threads or kept
+ * around cheaply. Cells are indexed and packed the same way as in BitBoard. A snapshot keeps the LineTable of the
+ * board it was taken from, so boards restored from it are won by the same rules. A snapshot carries no move history; a
+ * game or board restored from it cannot undo past it.
+ */
+public final class GameState
+{
+    private static final int CELL_BITS = BitBoard.CELL_BITS;
+    private static final int CELLS_PER_WORD = BitBoard.CELLS_PER_WORD;
+    private static final long CELL_MASK = BitBoard.CELL_MASK;
+
+    public final LineTable lines;
+    public final int dim;
+    public final int numPieces;
+    public final long occupied;
+    public final long frees;
+    public final int nextPick;
+    public final int turn;
+    public final boolean gameover;
+    public final boolean draw;
+    public final long hash;
+    private final long cells0, cells1, cells2, cells3;
+
+    /**
+     * Constructs a snapshot. The cell words hold the piece values packed as in BitBoard; values on unoccupied cells
+     * are ignored. The hash is computed from the position.
+     * @param lines LineTable
+     * @param numPieces int
+     * @param occupied long
+     * @param cells long[]
+     * @param frees long
+     * @param nextPick int
+     * @param turn int
+     * @param gameover boolean
+     * @param draw boolean
+     */
+    public GameState(LineTable lines, int numPieces, long occupied, long[] cells, long frees, int nextPick, int turn,
+                     boolean gameover, boolean draw)
+    {
+        this.lines = lines;
+        this.dim = lines.dim;
+        this.numPieces = numPieces;
+        this.occupied = occupied;
+        this.frees = frees;
+        this.nextPick = nextPick;
+        this.turn = turn & 1;
+        this.gameover = gameover;
+        this.draw = draw;
+        // Repack only the occupied cells so equal positions have equal words
+        long[] words = new long[4];
+        long h = Zobrist.pick(nextPick) ^ ((this.turn == 1)? Zobrist.TURN : 0);
+        for(long cs = occupied; cs != 0; cs &= cs - 1)
+        {
+            int c = Long.numberOfTrailingZeros(cs), shift = (c % CELLS_PER_WORD) * CELL_BITS;
+            long p = (cells[c / CELLS_PER_WORD] >>> shift) & CELL_MASK;
+            words[c / CELLS_PER_WORD] |= p << shift;
+            h ^= Zobrist.cell(c, (int) p);
+        }
+        cells0 = words[0];
+        cells1 = words[1];
+        cells2 = words[2];
+        cells3 = words[3];
+        hash = h;
+    }
+
+    /**
+     * Returns the piece value on the given cell. Only meaningful if the cell is occupied.
+     * @param cell int
+     * @return int
+     */
+    public int pieceAt(int cell)
+    {
+        return (int) ((word(cell / CELLS_PER_WORD) >>> ((cell % CELLS_PER_WORD) * CELL_BITS)) & CELL_MASK);
+    }
+
+    public boolean isOccupied(int cell)
+    {
+        return (occupied & (1L << cell)) != 0;
+    }
+
+    /**
+     * Returns the number of pieces on the board.
+     * @return int
+     */
+    public int placed()
+    {
+        return Long.bitCount(occupied);
+    }
+
+    /**
+     * Returns one of the packed cell words.
+     * @param i int
+     * @return long
+     */
+    long word(int i)
+    {
+        switch(i)
+        {
+            case 0:  return cells0;
+            case 1:  return cells1;
+            case 2:  return cells2;
+            default: return cells3;
+        }
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if(!(other instanceof GameState)) return false;
+        GameState rhs = (GameState) other;
+        return hash == rhs.hash && lines == rhs.lines && numPieces == rhs.numPieces && occupied == rhs.occupied &&
+               frees == rhs.frees && nextPick == rhs.nextPick && turn == rhs.turn && gameover == rhs.gameover &&
+               draw == rhs.draw && cells0 == rhs.cells0 && cells1 == rhs.cells1 && cells2 == rhs.cells2 &&
+               cells3 == rhs.cells3;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(hash);
+    }
+}
@@ -0,0 +1,157 @@
+package model.Game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled winning patterns of a square board: which lines pass through each cell, which cells make up each line, and
+ * each line as a cell mask. A "line" is any group of cells that wins when its pieces share an attribute, so lines may
+ * have different lengths. The lines are the patterns of the board's win rules in order, with duplicates dropped; for
+ * the standard rule they are rows 0..dim-1, then columns dim..2dim-1, then the y = x diagonal and the y = -x diagonal.
+ * Cells are indexed row-major as in BitBoard. Tables are immutable and shared, one per board size and set of rules,
+ * so the arrays they return must not be modified.
+ */
+public final class LineTable
+{
+    private static final Map<List<Object>, LineTable> TABLES = new HashMap<>();
+
+    public final int dim;
+    public final int size;
+    public final int count;
+
+    private final List<WinRule> rules;
+    private final int[][] cellLines;
+    private final int[][] lineCells;
+    private final long[] lineMasks;
+
+    /**
+     * Returns the shared table for a dim by dim board won by the standard lines.
+     * @param dim int
+     * @return LineTable
+     */
+    public static LineTable of(int dim)
+    {
+        return of(dim, WinRules.LINES);
+    }
+
+    /**
+     * Returns the shared table for a dim by dim board won by the given rules.
+     * @param dim int
+     * @param rules WinRule[]
+     * @return LineTable
+     */
+    public static LineTable of(int dim, WinRule... rules)
+    {
+        if(dim < 2 || dim * dim > Long.SIZE) throw new IllegalArgumentException("Unsupported board size: " + dim);
+        if(rules.length == 0) throw new IllegalArgumentException("No win rules given");
+        List<Object> key = new ArrayList<>();
+        key.add(dim);
+        key.addAll(Arrays.asList(rules));
+        synchronized(TABLES)
+        {
+            return TABLES.computeIfAbsent(key, k -> new LineTable(dim, rules));
+        }
+    }
+
+    private LineTable(int dim, WinRule[] rules)
+    {
+        this.dim = dim;
+        this.size = dim * dim;
+        this.rules = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(rules)));
+        // Collect the patterns of every rule, dropping any already seen
+        List<int[]> patterns = new ArrayList<>();
+        List<Long> masks = new ArrayList<>();
+        for(WinRule rule : rules)
+            for(int[] cells : rule.patterns(dim))
+            {
+                long mask = 0;
+                for(int c : cells)
+                {
+                    if(c < 0 || c >= size) throw new IllegalArgumentException("Pattern cell off the board: " + c);
+                    mask |= 1L << c;
+                }
+                if(cells.length == 0 || Long.bitCount(mask) != cells.length)
+                    throw new IllegalArgumentException("Pattern must be distinct cells: " + Arrays.toString(cells));
+                if(masks.contains(mask)) continue;
+                patterns.add(cells.clone());
+                masks.add(mask);
+            }
+        count = patterns.size();
+        lineCells = patterns.toArray(new int[count][]);
+        lineMasks = new long[count];
+        for(int l = 0; l < count; l++) lineMasks[l] = masks.get(l);
+        // Invert the line to cell table
+        int[] counts = new int[size];
+        for(int l = 0; l < count; l++)
+            for(int c : lineCells[l]) counts[c]++;
+        cellLines = new int[size][];
+        for(int c = 0; c < size; c++) cellLines[c] = new int[counts[c]];
+        for(int l = 0; l < count; l++)
+            for(int c : lineCells[l]) cellLines[c][--counts[c]] = l;
+        for(int[] ls : cellLines) Arrays.sort(ls);
+    }
+
+    /**
+     * Returns the win rules the table was compiled from.
+     * @return List
+     */
+    public List<WinRule> rules()
+    {
+        return rules;
+    }
+
+    /**
+     * Returns the ids of the lines passing through the given cell, in ascending order.
+     * @param cell int
+     * @return int[]
+     */
+    public int[] linesOf(int cell)
+    {
+        return cellLines[cell];
+    }
+
+    /**
+     * Returns the cells of the given line.
+     * @param line int
+     * @return int[]
+     */
+    public int[] cellsOf(int line)
+    {
+        return lineCells[line];
+    }
+
+    /**
+     * Returns the number of cells on the given line.
+     * @param line int
+     * @return int
+     */
+    public int lengthOf(int line)
+    {
+        return lineCells[line].length;
+    }
+
+    /**
+     * Returns the cells of the given line as a bit mask.
+     * @param line int
+     * @return long
+     */
+    public long maskOf(int line)
+    {
+        return lineMasks[line];
+    }
+
+    /**
+     * Returns the largest number of lines passing through any one cell.
+     * @return int
+     */
+    public int maxLinesPerCell()
+    {
+        int max = 0;
+        for(int[] ls : cellLines) max = Math.max(max, ls.length);
+        return max;
+    }
+}
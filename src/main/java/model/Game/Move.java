@@ -28,4 +28,37 @@ public class Move
         y = mvY;
         picked = pick;
     }
+
+    /**
+     * Encodes a move on a BitBoard as a primitive int: the cell in the low byte and the pick in the next byte. Either
+     * may be BitBoard.NONE. Searches pass moves around in this form and only convert to Move objects at the API
+     * boundary.
+     * @param cell int
+     * @param pick int
+     * @return int
+     */
+    public static int encode(int cell, int pick)
+    {
+        return (cell & 0xFF) | (pick & 0xFF) << 8;
+    }
+
+    /**
+     * Returns the cell of an encoded move.
+     * @param move int
+     * @return int
+     */
+    public static int cellOf(int move)
+    {
+        return (byte) move;
+    }
+
+    /**
+     * Returns the pick of an encoded move.
+     * @param move int
+     * @return int
+     */
+    public static int pickOf(int move)
+    {
+        return (byte) (move >> 8);
+    }
 }
@@ -0,0 +1,165 @@
+package model.Game;
+
+import model.Piece;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of a game's pieces stored as a bit mask indexed by Piece.value. Membership tests, adds and removes are O(1).
+ * The set is also a List whose order is always ascending piece value, so positions stay stable no matter in which
+ * order pieces were removed and added back.
+ */
+public class PieceSet extends AbstractList<Piece>
+{
+    private final Piece[] pieces;
+    private long mask;
+
+    /**
+     * Constructs a set over the given pieces, indexed by value, containing the pieces in the mask.
+     * @param pieces Piece[]
+     * @param mask long
+     */
+    public PieceSet(Piece[] pieces, long mask)
+    {
+        this.pieces = pieces;
+        this.mask = mask;
+    }
+
+    /**
+     * Returns the bit mask of the pieces in the set.
+     * @return long
+     */
+    public long mask()
+    {
+        return mask;
+    }
+
+    /**
+     * Replaces the contents of the set with the pieces in the mask.
+     * @param mask long
+     */
+    public void setMask(long mask)
+    {
+        this.mask = mask;
+        modCount++;
+    }
+
+    /**
+     * Helper for checking that an object is one of the pieces this set is over, and returns its value. Returns -1
+     * otherwise.
+     * @param o Object
+     * @return int
+     */
+    private int valueOf(Object o)
+    {
+        if(!(o instanceof Piece)) return -1;
+        int v = ((Piece) o).value;
+        return (v >= 0 && v < pieces.length && pieces[v] == o)? v : -1;
+    }
+
+    @Override
+    public int size()
+    {
+        return Long.bitCount(mask);
+    }
+
+    @Override
+    public Piece get(int index)
+    {
+        if(index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index);
+        long m = mask;
+        for(int i = 0; i < index; i++) m &= m - 1;
+        return pieces[Long.numberOfTrailingZeros(m)];
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        int v = valueOf(o);
+        return v >= 0 && (mask & (1L << v)) != 0;
+    }
+
+    @Override
+    public int indexOf(Object o)
+    {
+        int v = valueOf(o);
+        if(v < 0 || (mask & (1L << v)) == 0) return -1;
+        return Long.bitCount(mask & ((1L << v) - 1));
+    }
+
+    @Override
+    public int lastIndexOf(Object o)
+    {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean add(Piece p)
+    {
+        int v = valueOf(p);
+        if(v < 0 || (mask & (1L << v)) != 0) return false;
+        mask |= 1L << v;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        int v = valueOf(o);
+        if(v < 0 || (mask & (1L << v)) == 0) return false;
+        mask &= ~(1L << v);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public Piece remove(int index)
+    {
+        Piece p = get(index);
+        remove(p);
+        return p;
+    }
+
+    @Override
+    public void clear()
+    {
+        mask = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Piece> iterator()
+    {
+        return new Iterator<Piece>()
+        {
+            private long left = mask;
+            private Piece last = null;
+
+            @Override
+            public boolean hasNext()
+            {
+                return left != 0;
+            }
+
+            @Override
+            public Piece next()
+            {
+                if(left == 0) throw new NoSuchElementException();
+                last = pieces[Long.numberOfTrailingZeros(left)];
+                left &= left - 1;
+                return last;
+            }
+
+            @Override
+            public void remove()
+            {
+                if(last == null) throw new IllegalStateException();
+                PieceSet.this.remove(last);
+                last = null;
+            }
+        };
+    }
+}
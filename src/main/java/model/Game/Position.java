@@ -0,0 +1,187 @@
+package model.Game;
+
+import model.Attribute;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact text notation for Quarto positions, and a factory that builds games straight from it. A position is five
+ * fields separated by single spaces:
+ *
+ *     Q1 variant cells pick turn
+ *
+ * Q1 is the notation version. The variant is the win rules as lower case letters (l lines, q 2x2 squares, w
+ * wrap-around diagonals) followed by the extra attributes as upper case letters (S slash, B bar), in the order the
+ * game uses them. The cells are the dim * dim board cells in row-major order (cell = y * dim + x), each either '.'
+ * for an empty cell or the value of its piece as one digit of 0-9, a-z, A-Z, '+', '='. The pick is the piece to be
+ * placed next in the same digits, or '.' if there is none, and the turn is 0 or 1. Each rule and attribute may only
+ * appear once, and the turn must be the one the board implies: every move, including the opening pick, hands the turn
+ * to the other player. The standard starting position is "Q1 l ................ . 0".
+ */
+public final class Position
+{
+    public static final String VERSION = "Q1";
+
+    private static final String DIGITS = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ+=";
+    private static final char EMPTY = '.';
+    private static final int[] VALUES = new int[128];
+    static
+    {
+        Arrays.fill(VALUES, -1);
+        for(int v = 0; v < DIGITS.length(); v++) VALUES[DIGITS.charAt(v)] = v;
+    }
+
+    private static final List<Attribute> DEFAULT_ATTS =
+            Arrays.asList(Attribute.SIZE, Attribute.SHAPE, Attribute.COLOR, Attribute.TOP);
+    private static final WinRules[] RULES = {WinRules.LINES, WinRules.BLOCKS, WinRules.WRAP};
+    private static final String RULE_LETTERS = "lqw";
+    private static final Attribute[] EXTRA_ATTS = {Attribute.SLASH, Attribute.BAR};
+    private static final String ATT_LETTERS = "SB";
+
+    private Position() {}
+
+    /**
+     * Writes the position of the game. Only Quarto games whose rules and attributes have a letter can be written.
+     * @param g Game
+     * @return String
+     */
+    public static String write(Game g)
+    {
+        if(!(g instanceof Quarto)) throw new IllegalArgumentException("Not a Quarto game: " + g);
+        BitBoard b = g.bits;
+        StringBuilder sb = new StringBuilder(VERSION.length() + b.size + 16);
+        sb.append(VERSION).append(' ');
+        for(WinRule r : ((Quarto) g).getWinRules())
+        {
+            int i = Arrays.asList(RULES).indexOf(r);
+            if(i < 0) throw new IllegalArgumentException("Win rule has no letter: " + r);
+            sb.append(RULE_LETTERS.charAt(i));
+        }
+        if(!g.atts.subList(0, DEFAULT_ATTS.size()).equals(DEFAULT_ATTS))
+            throw new IllegalArgumentException("Game does not use the default attributes");
+        for(Attribute a : g.atts.subList(DEFAULT_ATTS.size(), g.atts.size()))
+        {
+            int i = Arrays.asList(EXTRA_ATTS).indexOf(a);
+            if(i < 0) throw new IllegalArgumentException("Attribute has no letter: " + a.name);
+            sb.append(ATT_LETTERS.charAt(i));
+        }
+        sb.append(' ');
+        for(int c = 0; c < b.size; c++)
+            sb.append(b.isOccupied(c)? DIGITS.charAt(b.pieceAt(c)) : EMPTY);
+        sb.append(' ').append((b.nextPick() == BitBoard.NONE)? EMPTY : DIGITS.charAt(b.nextPick()));
+        sb.append(' ').append(b.turn());
+        return sb.toString();
+    }
+
+    /**
+     * Builds a game at the given position. The game has no moves to undo. It is over if some line is already won, in
+     * which case the player who just moved is the winner, or if no line can be won anymore.
+     * @param pos String
+     * @return Game
+     */
+    public static Game read(String pos)
+    {
+        int i = expect(pos, 0, VERSION);
+        i = expect(pos, i, " ");
+
+        // Variant
+        List<WinRule> rules = new ArrayList<>(RULES.length);
+        List<Attribute> atts = new ArrayList<>(DEFAULT_ATTS);
+        for(int k; i < pos.length() && (k = RULE_LETTERS.indexOf(pos.charAt(i))) >= 0; i++)
+        {
+            if(rules.contains(RULES[k])) throw malformed(pos, i, "win rule given twice");
+            rules.add(RULES[k]);
+        }
+        for(int k; i < pos.length() && (k = ATT_LETTERS.indexOf(pos.charAt(i))) >= 0; i++)
+        {
+            if(atts.contains(EXTRA_ATTS[k])) throw malformed(pos, i, "attribute given twice");
+            atts.add(EXTRA_ATTS[k]);
+        }
+        if(rules.isEmpty()) throw malformed(pos, i, "expected a win rule");
+        i = expect(pos, i, " ");
+        Quarto q = new Quarto(atts, rules.toArray(new WinRule[0]));
+
+        // Cells
+        int size = q.bits.size, numPieces = q.bits.numPieces;
+        long occupied = 0, used = 0;
+        long[] cells = new long[(BitBoard.MAX_CELLS + BitBoard.CELLS_PER_WORD - 1) / BitBoard.CELLS_PER_WORD];
+        for(int c = 0; c < size; c++, i++)
+        {
+            if(i >= pos.length()) throw malformed(pos, i, "expected " + size + " cells");
+            if(pos.charAt(i) == EMPTY) continue;
+            int v = valueAt(pos, i, numPieces);
+            if((used & (1L << v)) != 0) throw malformed(pos, i, "piece used twice");
+            used |= 1L << v;
+            occupied |= 1L << c;
+            cells[c / BitBoard.CELLS_PER_WORD] |= (long) v << ((c % BitBoard.CELLS_PER_WORD) * BitBoard.CELL_BITS);
+        }
+        i = expect(pos, i, " ");
+
+        // Next pick and turn
+        int pick = BitBoard.NONE;
+        if(i < pos.length() && pos.charAt(i) != EMPTY)
+        {
+            pick = valueAt(pos, i, numPieces);
+            if((used & (1L << pick)) != 0) throw malformed(pos, i, "pick is already on the board");
+        }
+        i = expect(pos, i + 1, " ");
+        if(i >= pos.length() || (pos.charAt(i) != '0' && pos.charAt(i) != '1')) throw malformed(pos, i, "expected turn");
+        int turn = pos.charAt(i) - '0';
+        // Every move hands over the turn, including the opening pick
+        int placed = Long.bitCount(occupied);
+        if(turn != ((placed + ((placed > 0 || pick != BitBoard.NONE)? 1 : 0)) & 1))
+            throw malformed(pos, i, "turn does not match the board");
+        i++;
+        if(i != pos.length()) throw malformed(pos, i, "trailing characters");
+
+        long all = (numPieces == BitBoard.MAX_PIECES)? -1L : (1L << numPieces) - 1;
+        long frees = all & ~used & ((pick == BitBoard.NONE)? -1L : ~(1L << pick));
+        q.restore(new GameState(q.bits.lines(), numPieces, occupied, cells, frees, pick, turn, false, false));
+        boolean won = q.bits.isWon();
+        q.gameover = won || q.bits.isDrawn();
+        q.draw = q.gameover && !won;
+        return q;
+    }
+
+    /**
+     * Helper for checking that the position has the given text at the index. Returns the index after it.
+     * @param pos String
+     * @param i int
+     * @param text String
+     * @return int
+     */
+    private static int expect(String pos, int i, String text)
+    {
+        if(!pos.startsWith(text, i)) throw malformed(pos, i, "expected '" + text + "'");
+        return i + text.length();
+    }
+
+    /**
+     * Helper for reading a piece value digit.
+     * @param pos String
+     * @param i int
+     * @param numPieces int
+     * @return int
+     */
+    private static int valueAt(String pos, int i, int numPieces)
+    {
+        char ch = pos.charAt(i);
+        int v = (ch < VALUES.length)? VALUES[ch] : -1;
+        if(v < 0 || v >= numPieces) throw malformed(pos, i, "bad piece '" + ch + "'");
+        return v;
+    }
+
+    /**
+     * Helper for building the exception thrown for a malformed position.
+     * @param pos String
+     * @param i int
+     * @param msg String
+     * @return IllegalArgumentException
+     */
+    private static IllegalArgumentException malformed(String pos, int i, String msg)
+    {
+        return new IllegalArgumentException("Bad position at " + i + ", " + msg + ": " + pos);
+    }
+}
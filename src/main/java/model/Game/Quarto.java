@@ -3,8 +3,13 @@ package model.Game;
 import model.Attribute;
 import model.Board;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 public class Quarto extends Game
 {
+    private WinRule[] rules = {WinRules.LINES};
 
     /**
      * Default constructor. Initializes the board and the pieces.
@@ -16,6 +21,27 @@ public class Quarto extends Game
         setupPieces();
     }
 
+    /**
+     * Constructor with the option of also winning with four similar pieces in any 2x2 square of the board.
+     * @param squareWins boolean
+     */
+    public Quarto(boolean squareWins)
+    {
+        this(squareWins? new WinRule[]{WinRules.LINES, WinRules.BLOCKS} : new WinRule[]{WinRules.LINES});
+    }
+
+    /**
+     * Constructor for a standard game won by the given rules instead of just the lines.
+     * @param winRules WinRule[]
+     */
+    public Quarto(WinRule... winRules)
+    {
+        if(winRules.length > 0) rules = winRules.clone();
+        addDefaultAttrs();
+        board = new Board(4,4);
+        setupPieces();
+    }
+
     /**
      * Constructor with the option of supplying an extra attribute to play with.
      * @param newAttr Attribute
@@ -28,6 +54,70 @@ public class Quarto extends Game
         setupPieces();
     }
 
+    /**
+     * Constructor with the option of supplying two extra attributes to play with. With both SLASH and BAR this is the
+     * 6x6 variant with 64 pieces, the largest a BitBoard can hold.
+     * @param newAttr Attribute
+     * @param otherAttr Attribute
+     */
+    public Quarto(Attribute newAttr, Attribute otherAttr)
+    {
+        addDefaultAttrs();
+        addAttr(newAttr);
+        addAttr(otherAttr);
+        board = new Board(atts.size(), atts.size());
+        setupPieces();
+    }
+
+    /**
+     * Constructs a game that plays with exactly the given attributes and win rules. Used to create games of the same
+     * variant, and games read from a position.
+     * @param gameAtts List
+     * @param winRules WinRule[]
+     */
+    Quarto(List<Attribute> gameAtts, WinRule[] winRules)
+    {
+        rules = winRules;
+        atts.addAll(gameAtts);
+        board = new Board(atts.size(), atts.size());
+        setupPieces();
+    }
+
+    @Override
+    protected Game newGame()
+    {
+        return new Quarto(atts, rules);
+    }
+
+    /**
+     * Compiles the game's win rules for its board size. The patterns are precomputed per cell in the table, so checkWin
+     * costs the same whatever the rules.
+     * @return LineTable
+     */
+    @Override
+    protected LineTable winLines()
+    {
+        return LineTable.of(board.xLength, rules);
+    }
+
+    /**
+     * Returns the rules the game is won by.
+     * @return List<WinRule>
+     */
+    public List<WinRule> getWinRules()
+    {
+        return Collections.unmodifiableList(Arrays.asList(rules));
+    }
+
+    /**
+     * Returns true if four similar pieces in a 2x2 square also win the game.
+     * @return boolean
+     */
+    public boolean hasSquareWins()
+    {
+        return Arrays.asList(rules).contains(WinRules.BLOCKS);
+    }
+
     /**
      * Adds an extra attribute to the game. Rejects the attribute if it shares any values with the existing attributes.
      * @param newAttr Attribute
@@ -53,7 +143,18 @@ public class Quarto extends Game
     @Override
     public String toString()
     {
-        if(atts.size() == 4) return "Standard";
-        return "Custom: " + atts.get(4).name;
+        StringBuilder sb = new StringBuilder((atts.size() == 4)? "Standard" : "Custom: ");
+        for(int i = 4; i < atts.size(); i++)
+            sb.append((i > 4)? " + " : "").append(atts.get(i).name);
+        // List any rules besides the lines
+        String sep = " (";
+        for(WinRule r : rules)
+        {
+            if(r == WinRules.LINES) continue;
+            sb.append(sep).append((r instanceof WinRules)? ((WinRules) r).label : r.toString());
+            sep = ", ";
+        }
+        if(!sep.equals(" (")) sb.append(')');
+        return sb.toString();
     }
 }
@@ -0,0 +1,243 @@
+package model.Game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Canonical keys for positions that play the same. Two positions are equivalent if one turns into the other by a board
+ * symmetry together with a relabeling of the pieces: any permutation of the attributes, and flipping any of them. Such
+ * positions have the same value, so a search can share one table entry between them and only needs to try one move
+ * out of each group of equivalent moves.
+ *
+ * The board symmetries are the cell permutations that map the lines of the board's LineTable onto themselves. They
+ * are found once per table among the maps that permute the rows and columns and may transpose the board, which for the
+ * standard 4x4 lines gives the 32 rotations, reflections and inner/outer swaps. Pieces need no tables of their own: the
+ * first piece in cell order is flipped to 0 and the attribute bits are then sorted by their pattern over the board,
+ * which gives the same result for every relabeling.
+ */
+public final class Symmetry
+{
+    private static final Map<LineTable, Symmetry> TABLES = new HashMap<>();
+
+    private static final long PICK_SALT = 0x9E3779B97F4A7C15L;
+
+    // Length of the scratch array canonicalKey needs, one word per attribute bit
+    public static final int SCRATCH_LENGTH = BitBoard.CELL_BITS;
+
+    public final LineTable lines;
+
+    // For each symmetry, the image of each cell, and the cell that ends up on each cell
+    private final int[][] maps;
+    private final int[][] sources;
+
+    /**
+     * Returns the shared symmetries of the given table.
+     * @param lines LineTable
+     * @return Symmetry
+     */
+    public static Symmetry of(LineTable lines)
+    {
+        synchronized(TABLES)
+        {
+            return TABLES.computeIfAbsent(lines, Symmetry::new);
+        }
+    }
+
+    private Symmetry(LineTable lines)
+    {
+        this.lines = lines;
+        int dim = lines.dim;
+        long[] masks = new long[lines.count];
+        for(int l = 0; l < lines.count; l++) masks[l] = lines.maskOf(l);
+        Arrays.sort(masks);
+        List<int[]> found = new ArrayList<>();
+        List<int[]> perms = permutations(dim);
+        for(int transpose = 0; transpose < 2; transpose++)
+            for(int[] xs : perms)
+                for(int[] ys : perms)
+                    if(preservesLines(masks, xs, ys, transpose == 1))
+                    {
+                        int[] map = new int[lines.size];
+                        for(int c = 0; c < lines.size; c++) map[c] = image(c, dim, xs, ys, transpose == 1);
+                        found.add(map);
+                    }
+        maps = found.toArray(new int[0][]);
+        sources = new int[maps.length][lines.size];
+        for(int s = 0; s < maps.length; s++)
+            for(int c = 0; c < lines.size; c++) sources[s][maps[s][c]] = c;
+    }
+
+    /**
+     * Helper for listing every permutation of 0..n-1, the identity first.
+     * @param n int
+     * @return List
+     */
+    private static List<int[]> permutations(int n)
+    {
+        List<int[]> perms = new ArrayList<>();
+        permute(new int[n], 0, new boolean[n], perms);
+        return perms;
+    }
+
+    private static void permute(int[] perm, int i, boolean[] used, List<int[]> perms)
+    {
+        if(i == perm.length)
+        {
+            perms.add(perm.clone());
+            return;
+        }
+        for(int v = 0; v < perm.length; v++)
+        {
+            if(used[v]) continue;
+            used[v] = true;
+            perm[i] = v;
+            permute(perm, i + 1, used, perms);
+            used[v] = false;
+        }
+    }
+
+    /**
+     * Helper for mapping a cell: column x goes to column xs[x], row y to row ys[y], and the result is optionally
+     * transposed.
+     * @param cell int
+     * @param dim int
+     * @param xs int[]
+     * @param ys int[]
+     * @param transpose boolean
+     * @return int
+     */
+    private static int image(int cell, int dim, int[] xs, int[] ys, boolean transpose)
+    {
+        int x = xs[cell % dim], y = ys[cell / dim];
+        return transpose? x * dim + y : y * dim + x;
+    }
+
+    /**
+     * Helper for checking that the map takes every line to a line. The lines are tried last to first, as the later
+     * ones (e.g. diagonals) rule out most maps.
+     * @param masks long[] sorted line masks
+     * @param xs int[]
+     * @param ys int[]
+     * @param transpose boolean
+     * @return boolean
+     */
+    private boolean preservesLines(long[] masks, int[] xs, int[] ys, boolean transpose)
+    {
+        for(int l = lines.count - 1; l >= 0; l--)
+        {
+            long mask = 0;
+            for(int c : lines.cellsOf(l)) mask |= 1L << image(c, lines.dim, xs, ys, transpose);
+            if(Arrays.binarySearch(masks, mask) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of board symmetries, including the identity.
+     * @return int
+     */
+    public int count()
+    {
+        return maps.length;
+    }
+
+    /**
+     * Returns the image of each cell under the given symmetry. Symmetry 0 is the identity.
+     * @param s int
+     * @return int[]
+     */
+    public int[] cellMap(int s)
+    {
+        return maps[s];
+    }
+
+    /**
+     * Returns a key that is the same for all equivalent positions, covering the pieces on the board and the next pick.
+     * The side to move is left out, as scores are always from the mover's point of view. The board must use this
+     * symmetry's LineTable and have every piece value of its attribute bits.
+     * @param b BitBoard
+     * @return long
+     */
+    public long canonicalKey(BitBoard b)
+    {
+        return canonicalKey(b, new long[SCRATCH_LENGTH]);
+    }
+
+    /**
+     * Returns the canonical key of the position like canonicalKey(b), using the given array of at least SCRATCH_LENGTH
+     * words as scratch space so that nothing is allocated. Each searching thread needs its own scratch array.
+     * @param b BitBoard
+     * @param cols long[]
+     * @return long
+     */
+    public long canonicalKey(BitBoard b, long[] cols)
+    {
+        // Only the symmetries that map the occupied cells to the least mask need their pieces compared
+        long occupied = b.occupied(), least = -1;
+        for(int[] map : maps)
+        {
+            long image = 0;
+            for(long o = occupied; o != 0; o &= o - 1) image |= 1L << map[Long.numberOfTrailingZeros(o)];
+            if(Long.compareUnsigned(image, least) < 0) least = image;
+        }
+        int bits = Integer.numberOfTrailingZeros(b.numPieces), pick = b.nextPick();
+        long best = 0;
+        boolean first = true;
+        for(int s = 0; s < maps.length; s++)
+        {
+            int[] map = maps[s];
+            long image = 0;
+            for(long o = occupied; o != 0; o &= o - 1) image |= 1L << map[Long.numberOfTrailingZeros(o)];
+            if(image != least) continue;
+            // Flip the first piece to 0 and collect each attribute bit's pattern over the pieces in order
+            int[] from = sources[s];
+            int base = BitBoard.NONE, k = 0;
+            Arrays.fill(cols, 0, bits, 0);
+            for(long i = image; i != 0; i &= i - 1)
+            {
+                int v = b.pieceAt(from[Long.numberOfTrailingZeros(i)]);
+                if(base == BitBoard.NONE) base = v;
+                addPiece(cols, bits, v ^ base, k++);
+            }
+            if(pick != BitBoard.NONE)
+            {
+                if(base == BitBoard.NONE) base = pick;
+                addPiece(cols, bits, pick ^ base, k);
+            }
+            // Sorting the patterns undoes any permutation of the attributes
+            Arrays.sort(cols, 0, bits);
+            long h = mix(image ^ ((pick == BitBoard.NONE)? 0 : PICK_SALT));
+            for(int bit = 0; bit < bits; bit++) h = mix(h ^ cols[bit]);
+            if(first || h < best) best = h;
+            first = false;
+        }
+        return best;
+    }
+
+    /**
+     * Helper for adding a piece's attribute bits to the patterns at the given position.
+     * @param cols long[]
+     * @param bits int
+     * @param piece int
+     * @param k int
+     */
+    private static void addPiece(long[] cols, int bits, int piece, int k)
+    {
+        for(int bit = 0; bit < bits; bit++) cols[bit] |= (long) ((piece >>> bit) & 1) << k;
+    }
+
+    /**
+     * Helper for scrambling the bits of a key.
+     * @param h long
+     * @return long
+     */
+    private static long mix(long h)
+    {
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
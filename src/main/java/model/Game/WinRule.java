@@ -0,0 +1,17 @@
+package model.Game;
+
+/**
+ * A rule for winning the game. A rule only declares its winning patterns: groups of cells that win when all of them
+ * hold pieces sharing an attribute. The patterns of a game's rules are compiled once into a LineTable, whose per-cell
+ * tables and masks are what win detection, threat detection and search actually use, so every rule runs at the same
+ * speed as the standard lines.
+ */
+public interface WinRule
+{
+    /**
+     * Returns the winning patterns of the rule on a dim by dim board, each as an array of row-major cell indices.
+     * @param dim int
+     * @return int[][]
+     */
+    int[][] patterns(int dim);
+}
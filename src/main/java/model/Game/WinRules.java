@@ -0,0 +1,75 @@
+package model.Game;
+
+/**
+ * The built-in win rules.
+ */
+public enum WinRules implements WinRule
+{
+    /**
+     * Rows, columns and the two main diagonals.
+     */
+    LINES("lines")
+    {
+        @Override
+        public int[][] patterns(int dim)
+        {
+            int[][] out = new int[2 * dim + 2][dim];
+            for(int i = 0; i < dim; i++)
+            {
+                for(int j = 0; j < dim; j++)
+                {
+                    out[i][j] = i * dim + j;            // Horizontal
+                    out[dim + i][j] = j * dim + i;      // Vertical
+                }
+                out[2 * dim][i] = i * dim + i;                  // y = x
+                out[2 * dim + 1][i] = i * dim + (dim - 1 - i);  // y = -x
+            }
+            return out;
+        }
+    },
+
+    /**
+     * Every 2x2 square, indexed by its top left cell.
+     */
+    BLOCKS("squares")
+    {
+        @Override
+        public int[][] patterns(int dim)
+        {
+            int[][] out = new int[(dim - 1) * (dim - 1)][];
+            for(int y = 0, k = 0; y < dim - 1; y++)
+                for(int x = 0; x < dim - 1; x++)
+                {
+                    int c = y * dim + x;
+                    out[k++] = new int[]{c, c + 1, c + dim, c + dim + 1};
+                }
+            return out;
+        }
+    },
+
+    /**
+     * Diagonals that wrap around the edges of the board, as if it were a torus. Includes the two main diagonals.
+     */
+    WRAP("wrap-around")
+    {
+        @Override
+        public int[][] patterns(int dim)
+        {
+            int[][] out = new int[2 * dim][dim];
+            for(int k = 0; k < dim; k++)
+                for(int y = 0; y < dim; y++)
+                {
+                    out[k][y] = y * dim + (y + k) % dim;                    // y = x + k
+                    out[dim + k][y] = y * dim + (k - y + dim) % dim;        // y = -x + k
+                }
+            return out;
+        }
+    };
+
+    public final String label;
+
+    WinRules(String label)
+    {
+        this.label = label;
+    }
+}
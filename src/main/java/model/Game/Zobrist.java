@@ -0,0 +1,46 @@
+package model.Game;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random 64-bit keys for Zobrist hashing of BitBoard positions. A position's hash is the XOR of the key of every
+ * (cell, piece) pair on the board, the key of the next pick and the side-to-move key. The keys are generated from a
+ * fixed seed so hashes are identical across runs.
+ */
+public final class Zobrist
+{
+    private static final long[] CELLS = new long[BitBoard.MAX_CELLS * BitBoard.MAX_PIECES];
+    private static final long[] PICKS = new long[BitBoard.MAX_PIECES];
+    public static final long TURN;
+
+    static
+    {
+        SplittableRandom rng = new SplittableRandom(0x51A7E5EEDL);
+        for(int i = 0; i < CELLS.length; i++) CELLS[i] = rng.nextLong();
+        for(int i = 0; i < PICKS.length; i++) PICKS[i] = rng.nextLong();
+        TURN = rng.nextLong();
+    }
+
+    private Zobrist() { }
+
+    /**
+     * Returns the key of the given piece placed on the given cell.
+     * @param cell int
+     * @param piece int
+     * @return long
+     */
+    public static long cell(int cell, int piece)
+    {
+        return CELLS[cell * BitBoard.MAX_PIECES + piece];
+    }
+
+    /**
+     * Returns the key of the given piece being the next pick. No pick has the key 0.
+     * @param piece int
+     * @return long
+     */
+    public static long pick(int piece)
+    {
+        return (piece == BitBoard.NONE)? 0 : PICKS[piece];
+    }
+}
@@ -2,21 +2,22 @@ package model;
 
 import model.Attribute.Att;
 
-import javax.swing.*;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 /**
  * Represents a Quarto piece. Pieces can have any number of Attributes. A Quarto piece simply stores the attributes it
- * has.
+ * has, both as a set and as a bit mask indexed by Att ordinal so comparisons between pieces are single AND operations.
  */
 
 public class Piece
 {
     public final int value;
-    private ImageIcon icon;
     private Set<Att> atts = new LinkedHashSet<>();
+    private int attMask = 0;
+    private boolean frozen = false;
 
     public Piece(byte[] binaryVal)
     {
@@ -38,15 +39,28 @@ public class Piece
     }
 
     /**
-     * Adds an attribute to the Piece. The attNum specifies which attribute value to take.
+     * Adds an attribute to the Piece. The attNum specifies which attribute value to take. Frozen pieces can't be
+     * changed.
      * @param newAttr Attribute
      * @param attNum byte
      */
     public void addAtt(Attribute newAttr, byte attNum)
     {
-        if(newAttr != null && (attNum == 0 || attNum == 1) &&
-           !(atts.contains(newAttr.att0) || atts.contains(newAttr.att1)))
-                atts.add(newAttr.getAtt(attNum));
+        if(frozen) throw new IllegalStateException("Piece is shared and can't be changed: " + this);
+        if(newAttr != null && (attNum == 0 || attNum == 1) && (attMask & newAttr.mask) == 0)
+        {
+            Att a = newAttr.getAtt(attNum);
+            atts.add(a);
+            attMask |= 1 << a.ordinal();
+        }
+    }
+
+    /**
+     * Stops any further changes to the Piece's attributes, e.g. once it is shared through the PieceCatalog.
+     */
+    void freeze()
+    {
+        frozen = true;
     }
 
     /**
@@ -56,7 +70,7 @@ public class Piece
      */
     public boolean hasAtt(Att attr)
     {
-        return atts.contains(attr);
+        return attr != null && (attMask & (1 << attr.ordinal())) != 0;
     }
 
     /**
@@ -67,65 +81,70 @@ public class Piece
     public boolean hasAtts(Att[] attrs)
     {
         if(attrs == null || attrs.length == 0) return false;
-        boolean matches = true;
-        for(Att a : attrs)  matches &= atts.contains(a);
-        return matches;
+        return hasAtts(maskOf(attrs));
     }
 
     /**
-     * Returns the attribute set of the Piece.
-     * @return HashSet<Att>
+     * Checks if the piece has all the attributes in the given Att mask.
+     * @param mask int
+     * @return boolean
      */
-    public Set<Att> getAtts()
+    public boolean hasAtts(int mask)
     {
-        return atts;
+        return (attMask & mask) == mask;
     }
 
     /**
-     * Checks if a Piece is similar to another Piece.
-     * @param other Piece
-     * @return boolean
+     * Returns the Att mask of the given attributes.
+     * @param attrs Att[]
+     * @return int
      */
-    public boolean isSimilar(Piece other)
+    public static int maskOf(Att[] attrs)
     {
-        if(other == null) return false;
-        if(atts.isEmpty() && other.atts.isEmpty()) return true;
-        for(Att a : atts)
-            if(other.atts.contains(a))
-                return true;
-        return false;
+        int mask = 0;
+        for(Att a : attrs) mask |= 1 << a.ordinal();
+        return mask;
     }
 
     /**
-     * Returns the number of shared attribute between two pieces. Returns negative -1 if piece is null.
-     * @param other Piece
+     * Returns a read-only view of the attribute set of the Piece.
+     * @return Set<Att>
+     */
+    public Set<Att> getAtts()
+    {
+        return Collections.unmodifiableSet(atts);
+    }
+
+    /**
+     * Returns the attribute mask of the Piece. Bit i is set if the piece has the Att with ordinal i.
      * @return int
      */
-    public int countShared(Piece other)
+    public int getAttMask()
     {
-        if(other == null) return -1;
-        int count = 0;
-        Set<Att> otherAtts = other.atts;
-        for(Att a : atts)
-            if(otherAtts.contains(a)) count++;
-        return count;
+        return attMask;
     }
 
     /**
-     * Initializes the icon of the piece. Should be called after you have added all the attributes you want.
+     * Checks if a Piece is similar to another Piece.
+     * @param other Piece
+     * @return boolean
      */
-    public void initIcon()
+    public boolean isSimilar(Piece other)
     {
-        icon = PieceIcons.getIcon(atts);
+        if(other == null) return false;
+        if(attMask == 0 && other.attMask == 0) return true;
+        return (attMask & other.attMask) != 0;
     }
 
     /**
-     * Returns the ImageIcon representing the piece.
-     * @return ImageIcon
+     * Returns the number of shared attribute between two pieces. Returns negative -1 if piece is null.
+     * @param other Piece
+     * @return int
      */
-    public ImageIcon getIcon()
+    public int countShared(Piece other)
     {
-        return icon;
+        if(other == null) return -1;
+        return Integer.bitCount(attMask & other.attMask);
     }
 
     @Override
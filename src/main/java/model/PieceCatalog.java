@@ -0,0 +1,67 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared catalog of the pieces of each game variant. A variant's pieces only depend on its list of attributes, so
+ * they are built once and handed to every game playing with the same attributes. Catalog pieces are
+ * shared between games, so they are frozen and refuse any change to their attributes.
+ */
+public final class PieceCatalog
+{
+    private static final Map<List<Attribute>, Piece[]> CATALOG = new HashMap<>();
+
+    private PieceCatalog() {}
+
+    /**
+     * Returns the pieces for the given attributes, indexed by value. The returned array is a copy, but the pieces in
+     * it are shared.
+     * @param atts List
+     * @return Piece[]
+     */
+    public static Piece[] of(List<Attribute> atts)
+    {
+        Piece[] pieces;
+        synchronized(CATALOG)
+        {
+            pieces = CATALOG.get(atts);
+            if(pieces == null)
+            {
+                List<Attribute> key = new ArrayList<>(atts);
+                pieces = new Piece[1 << key.size()];
+                genPieces(key, pieces, new byte[key.size()], key.size());
+                CATALOG.put(key, pieces);
+            }
+        }
+        return pieces.clone();
+    }
+
+    /**
+     * Helper for recursively generating all the pieces. Essentially generates all possible binary arrays of length
+     * n, where each bit specifies the attribute value corresponding to the attribute at the same index in atts.
+     * Pieces are stored by value.
+     * @param atts List
+     * @param pieces Piece[]
+     * @param attNums byte[]
+     * @param n int
+     */
+    private static void genPieces(List<Attribute> atts, Piece[] pieces, byte[] attNums, int n)
+    {
+        if(n < 1)
+        {
+            Piece p = new Piece(atts, attNums);
+            p.freeze();
+            pieces[p.value] = p;
+        }
+        else
+        {
+            attNums[n-1] = 0;
+            genPieces(atts, pieces, attNums, n-1);
+            attNums[n-1] = 1;
+            genPieces(atts, pieces, attNums, n-1);
+        }
+    }
+}
@@ -86,7 +86,7 @@ public class QuartoView
         List<Piece> frees = game.getFrees();
         for(int i = 0; i < pieces.length; i++)
         {
-            ImageIcon icon = (i >= frees.size())? null : frees.get(i).getIcon();
+            ImageIcon icon = (i >= frees.size())? null : PieceIcons.iconOf(frees.get(i));
             pieces[i].setIcon(icon);
         }
     }
@@ -132,7 +132,7 @@ public class QuartoView
     public void setPiece(int[] coords, Piece piece)
     {
         if(isValidSquare(coords) && piece != null)
-            board[coords[0]][coords[1]].setIcon(piece.getIcon());
+            board[coords[0]][coords[1]].setIcon(PieceIcons.iconOf(piece));
     }
 
     /**
@@ -151,7 +151,7 @@ public class QuartoView
      */
     public void setNextPick(Piece piece)
     {
-        ImageIcon icon = (piece == null)? null : piece.getIcon();
+        ImageIcon icon = PieceIcons.iconOf(piece);
         nextPiece.setIcon(icon);
     }
 
@@ -282,7 +282,8 @@ public class QuartoView
     private void setupPieces(Game game)
     {
         List<Piece> frees = game.getFrees();
-        int w = frees.size() / 2;
+        // Large rosters get four rows instead of two so they fit the window
+        int w = (frees.size() > 32)? frees.size() / 4 : frees.size() / 2;
         JPanel grid = new JPanel(new GridLayout(0, w, 1, 1));
         grid.setBackground(Color.BLACK);
 
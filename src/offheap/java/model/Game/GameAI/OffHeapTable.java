@@ -0,0 +1,64 @@
+package model.Game.GameAI;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Transposition table whose entries live outside the Java heap in a MemorySegment. Uses the same entry layout and
+ * replacement scheme as TranpositionTable, but can be several gigabytes without adding GC pressure. The memory is
+ * owned by a shared Arena, so it can be probed from any thread and must be freed with release (or close) once the
+ * table is no longer needed. Slots are long aligned, so each one is still read and written as a single access when
+ * the table is shared by several searching threads.
+ */
+public class OffHeapTable extends TranpositionTable implements AutoCloseable
+{
+    private final Arena arena;
+    private final MemorySegment segment;
+
+    /**
+     * Constructs an off-heap table that uses at most the given number of megabytes. The number of buckets is rounded
+     * down to a power of two.
+     * @param megabytes long
+     */
+    public OffHeapTable(long megabytes)
+    {
+        super(bucketsFor(megabytes), false);
+        arena = Arena.ofShared();
+        segment = arena.allocate(capacity() * Long.BYTES, Long.BYTES);
+        segment.fill((byte) 0);
+    }
+
+    @Override
+    public void clear()
+    {
+        segment.fill((byte) 0);
+    }
+
+    @Override
+    protected long load(long i)
+    {
+        return segment.getAtIndex(ValueLayout.JAVA_LONG, i);
+    }
+
+    @Override
+    protected void save(long i, long entry)
+    {
+        segment.setAtIndex(ValueLayout.JAVA_LONG, i, entry);
+    }
+
+    /**
+     * Frees the off-heap memory. The table must not be used afterwards.
+     */
+    @Override
+    public void release()
+    {
+        if(arena.scope().isAlive()) arena.close();
+    }
+
+    @Override
+    public void close()
+    {
+        release();
+    }
+}
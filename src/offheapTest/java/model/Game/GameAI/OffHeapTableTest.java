@@ -0,0 +1,60 @@
+package model.Game.GameAI;
+
+import model.Game.Quarto;
+import org.junit.Test;
+
+import static model.Game.GameAI.TranpositionTable.*;
+import static org.junit.Assert.*;
+
+public class OffHeapTableTest
+{
+    /**
+     * Stores and probes entries off-heap, checks the occupancy and releases the memory.
+     */
+    @Test
+    public void testStoreProbeRelease()
+    {
+        OffHeapTable tt = new OffHeapTable(1);
+        assertEquals((1 << 20) / Long.BYTES, tt.capacity());
+        assertEquals(0.0, tt.occupancy(), 0);
+
+        long hash = 0xFEDCBA9876543210L;
+        tt.store(hash, 12, UPPER, 17, 0x0203);
+        long e = tt.probe(hash);
+        assertEquals(12, depth(e));
+        assertEquals(UPPER, flag(e));
+        assertEquals(17, value(e));
+        assertEquals(0x0203, move(e));
+
+        for(long h = 0; h < tt.capacity(); h++) tt.store(h << 1, 1, EXACT, 0, 0);
+        assertTrue(tt.occupancy() > 0.4);
+        tt.clear();
+        assertEquals(0, tt.probe(hash));
+        tt.release();
+        tt.release();
+    }
+
+    /**
+     * A HardAI constructed with an off-heap table should search with it.
+     */
+    @Test
+    public void testHardAIWithOffHeapTable()
+    {
+        try(OffHeapTable tt = new OffHeapTable(4))
+        {
+            Quarto q = new Quarto();
+            q.runTurn(-1, -1, q.getFrees().get(0));
+            q.runTurn(0, 0, q.getFrees().get(14));
+            q.runTurn(1, 1, q.getFrees().get(5));
+            q.runTurn(2, 3, q.getFrees().get(9));
+            q.runTurn(3, 2, q.getFrees().get(2));
+            q.runTurn(0, 3, q.getFrees().get(7));
+            q.runTurn(3, 0, q.getFrees().get(3));
+            assertEquals(-1, q.winner());
+            q.setAI(new HardAI(tt), q.getTurn());
+            q.runTurn(-1, -1, null);
+            assertEquals(7, q.getActives().size());
+            assertTrue(tt.occupancy() > 0);
+        }
+    }
+}
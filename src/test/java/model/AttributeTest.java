@@ -0,0 +1,21 @@
+package model;
+
+import org.junit.Test;
+
+import static model.Attribute.Att.*;
+import static org.junit.Assert.*;
+
+public class AttributeTest
+{
+    /**
+     * An attribute equal to a pre-defined one, even with its values swapped, should share its hash.
+     */
+    @Test
+    public void testEqualAttributeSharesHash()
+    {
+        Attribute swapped = new Attribute("colour", YLW, BWN);
+        assertEquals(Attribute.COLOR, swapped);
+        assertEquals(Attribute.COLOR.hashCode(), swapped.hashCode());
+        assertNotEquals(Attribute.COLOR, Attribute.SIZE);
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.lang.reflect.Field;
+import java.util.PrimitiveIterator;
 
 import static org.junit.Assert.*;
 
@@ -103,4 +104,40 @@ public class BoardTest
         board.put(new Piece(null), -1, -1);
         assertFalse(board.hasPiece(-1, -1));
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that the occupancy mask follows puts and removes, and that the open cell iterator visits the rest.
+     */
+    @Test
+    public void testOpenCells()
+    {
+        board.put(new Piece(null), 2, 1);
+        assertEquals(0x41L, board.occupiedMask());
+        assertEquals(0xFFBEL, board.openMask());
+        board.remove(0, 0);
+        assertEquals(0x40L, board.occupiedMask());
+
+        PrimitiveIterator.OfInt it = board.openCellIterator();
+        int count = 0;
+        while(it.hasNext())
+        {
+            int c = it.nextInt();
+            assertTrue(board.isOpen(c % xLen, c / xLen));
+            count++;
+        }
+        assertEquals(15, count);
+    }
+
+    /**
+     * Tests reading piece values by cell. Empty cells read as -1.
+     */
+    @Test
+    public void testValues()
+    {
+        Piece p = new Piece(new byte[]{1, 0, 1});
+        board.put(p, 3, 2);
+        int[] values = board.values(new int[]{11, 10, 0}, new int[3]);
+        assertArrayEquals(new int[]{5, -1, board.get(0).value}, values);
+        assertSame(p, board.get(11));
+    }
+}
@@ -0,0 +1,269 @@
+package model.Game;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BitBoardTest
+{
+    private BitBoard b;
+
+    /**
+     * Setup function. Initializes an empty standard 4x4 board.
+     */
+    @Before
+    public void setup()
+    {
+        b = new BitBoard(4, 16);
+    }
+
+    /**
+     * Tests the empty board. Every cell is open and every piece is free.
+     */
+    @Test
+    public void testEmptyBoard()
+    {
+        assertEquals(0xFFFFL, b.openCells());
+        assertEquals(0xFFFFL, b.frees());
+        assertEquals(BitBoard.NONE, b.nextPick());
+        assertEquals(0, b.placed());
+    }
+
+    /**
+     * Makes the first two moves and checks that the piece ends up on the board and the picks leave the free mask.
+     */
+    @Test
+    public void testMake()
+    {
+        b.make(BitBoard.NONE, 5);
+        assertFalse(b.isFree(5));
+        assertEquals(5, b.nextPick());
+        assertEquals(1, b.turn());
+
+        b.make(b.cell(2, 1), 9);
+        assertTrue(b.isOccupied(6));
+        assertEquals(5, b.pieceAt(6));
+        assertEquals(9, b.nextPick());
+        assertEquals(1, b.placed());
+        assertEquals(0, b.turn());
+    }
+
+    /**
+     * Makes a few moves and unmakes them all. The board should be back to its initial state.
+     */
+    @Test
+    public void testUnmake()
+    {
+        String empty = b.boardState();
+        b.make(BitBoard.NONE, 5);
+        b.make(3, 9);
+        b.make(12, 0);
+        b.unmake();
+        assertEquals(9, b.nextPick());
+        assertFalse(b.isOccupied(12));
+        assertTrue(b.isFree(0));
+        b.unmake();
+        b.unmake();
+        assertEquals(empty, b.boardState());
+        assertEquals(0xFFFFL, b.frees());
+        assertEquals(0, b.ply());
+    }
+
+    /**
+     * A placement sets up a threat when it leaves a line one piece short with its pieces still sharing an attribute.
+     */
+    @Test
+    public void testThreatsAfter()
+    {
+        b.make(BitBoard.NONE, 0);
+        b.make(0, 1);
+        b.make(1, 2);
+        assertEquals(1, b.threatsAfter(2, 2));
+        assertEquals(0, b.threatsAfter(2, 15));
+        assertEquals(0, b.threatsAfter(5, 2));
+    }
+
+    /**
+     * Checks that a copy is independent of the original.
+     */
+    @Test
+    public void testCopy()
+    {
+        b.make(BitBoard.NONE, 5);
+        BitBoard copy = b.copy();
+        copy.make(0, 1);
+        assertFalse(b.isOccupied(0));
+        assertTrue(b.isFree(1));
+        copy.unmake();
+        assertEquals(b.boardState(), copy.boardState());
+    }
+
+    /**
+     * Fills three cells of the top row with pieces sharing the high attribute bit, then checks the win on the last
+     * cell for a similar and a dissimilar piece.
+     */
+    @Test
+    public void testWins()
+    {
+        b.make(BitBoard.NONE, 0);
+        b.make(0, 1);
+        b.make(1, 2);
+        b.make(2, 3);
+        assertTrue(b.wins(3, 4));
+        assertFalse(b.wins(3, 15));
+        assertFalse(b.wins(7, 4));
+    }
+
+    /**
+     * Checks that the line masks are restored on unmake, so a win that existed before a move still exists after it
+     * is undone.
+     */
+    @Test
+    public void testWinsAfterUnmake()
+    {
+        b.make(BitBoard.NONE, 0);
+        b.make(0, 1);
+        b.make(5, 2);
+        b.make(10, 3);
+        assertTrue(b.wins(15, 4));
+        b.make(15, 8);
+        assertTrue(b.wins(15, 3));
+        b.unmake();
+        assertTrue(b.wins(15, 4));
+        assertFalse(b.wins(15, 15));
+    }
+
+    /**
+     * Checks the anti-diagonal win on a custom 5x5 board with 32 pieces.
+     */
+    @Test
+    public void testWins5x5()
+    {
+        b = new BitBoard(5, 32);
+        b.make(BitBoard.NONE, 16);
+        b.make(4, 17);
+        b.make(8, 18);
+        b.make(12, 19);
+        b.make(16, 20);
+        assertTrue(b.wins(20, 21));
+        assertFalse(b.wins(20, 15));
+        assertFalse(b.wins(24, 21));
+    }
+
+    /**
+     * Reaches the same position through two different move orders. The hashes should match, and unmaking should
+     * restore the previous hash.
+     */
+    @Test
+    public void testHash()
+    {
+        long empty = b.hash();
+        b.make(BitBoard.NONE, 1);
+        b.make(0, 2);
+        b.make(5, 3);
+        long h = b.hash();
+
+        BitBoard other = new BitBoard(4, 16);
+        other.make(BitBoard.NONE, 2);
+        other.make(5, 1);
+        other.make(0, 3);
+        assertEquals(h, other.hash());
+
+        b.unmake();
+        assertNotEquals(h, b.hash());
+        b.unmake();
+        b.unmake();
+        assertEquals(empty, b.hash());
+    }
+
+    /**
+     * Takes a snapshot of a position and restores a board from it. The restored board should have the same position,
+     * hash and line masks, and unmaking on the original should not affect the snapshot.
+     */
+    @Test
+    public void testSnapshot()
+    {
+        b.make(BitBoard.NONE, 0);
+        b.make(0, 1);
+        b.make(1, 2);
+        b.make(2, 3);
+        GameState state = b.snapshot();
+        BitBoard restored = new BitBoard(state);
+        assertEquals(b.hash(), restored.hash());
+        assertEquals(b.boardState(), restored.boardState());
+        assertTrue(restored.wins(3, 4));
+        assertEquals(0, restored.ply());
+
+        b.unmake();
+        assertEquals(3, state.placed());
+        assertEquals(state, restored.snapshot());
+        assertFalse(state.equals(b.snapshot()));
+    }
+
+    /**
+     * Lines die once they hold two pieces with nothing in common, and come back to life when the move is unmade.
+     */
+    @Test
+    public void testLiveLines()
+    {
+        BitBoard small = new BitBoard(2, 4);
+        assertEquals(6, small.liveLines());
+        small.make(BitBoard.NONE, 0);
+        small.make(0, 3);
+        small.make(3, 1);
+        assertEquals(5, small.liveLines());
+        small.make(1, 2);
+        assertEquals(5, small.liveLines());
+        assertFalse(small.isDrawn());
+        small.make(2, BitBoard.NONE);
+        assertEquals(4, small.liveLines());
+        assertTrue(small.isDrawn());
+        small.unmake();
+        assertEquals(5, small.liveLines());
+        small.unmake();
+        small.unmake();
+        assertEquals(6, small.liveLines());
+        small.make(3, 1);
+        assertEquals(small.liveLines(), new BitBoard(small.snapshot()).liveLines());
+    }
+
+    /**
+     * Helper that finds the poison pieces by brute force: a free piece is poison if it can win on some open cell.
+     * @param board BitBoard
+     * @return long
+     */
+    private long slowPoison(BitBoard board)
+    {
+        long poison = 0;
+        for(long ps = board.frees(); ps != 0; ps &= ps - 1)
+            for(long cs = board.openCells(); cs != 0; cs &= cs - 1)
+                if(board.wins(Long.numberOfTrailingZeros(cs), Long.numberOfTrailingZeros(ps)))
+                    poison |= Long.lowestOneBit(ps);
+        return poison;
+    }
+
+    /**
+     * Three pieces on a row sharing two attributes make every free piece with either of them poison. The poison after
+     * any placement should match a brute force search.
+     */
+    @Test
+    public void testPoison()
+    {
+        b.make(BitBoard.NONE, 8);
+        b.make(0, 9);
+        b.make(1, 10);
+        b.make(2, 0);
+        // Row 0 holds 8, 9 and 10, which all have bit 3 set and bit 2 clear
+        assertEquals(0xF80EL, b.poison());
+        assertEquals(slowPoison(b), b.poison());
+        for(long cs = b.openCells(); cs != 0; cs &= cs - 1)
+        {
+            int c = Long.numberOfTrailingZeros(cs);
+            long fast = b.poisonAfter(c, b.nextPick());
+            b.make(c, BitBoard.NONE);
+            assertEquals(slowPoison(b), fast);
+            b.unmake();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package model.Game.GameAI;
+
+import model.Game.BitBoard;
+import model.Game.Move;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GameAITest
+{
+    private BitBoard b;
+
+    /**
+     * Setup function. Initializes a standard 4x4 board after the opening pick.
+     */
+    @Before
+    public void setup()
+    {
+        b = new BitBoard(4, 16);
+        b.make(BitBoard.NONE, 5);
+    }
+
+    /**
+     * Every open cell should be paired with every free piece, in order, and the encoding should round-trip.
+     */
+    @Test
+    public void testGenMoves()
+    {
+        int[] buf = new int[GameAI.maxMoves(b) + 3];
+        int count = GameAI.genMoves(b, buf, 3);
+        assertEquals(16 * 15, count);
+        assertEquals(0, buf[0]);
+        assertEquals(0, Move.cellOf(buf[3]));
+        assertEquals(0, Move.pickOf(buf[3]));
+        assertEquals(0, Move.cellOf(buf[4]));
+        assertEquals(1, Move.pickOf(buf[4]));
+        assertEquals(15, Move.cellOf(buf[count + 2]));
+        assertEquals(15, Move.pickOf(buf[count + 2]));
+    }
+
+    /**
+     * Placing the last piece has no pick, so each move should carry NONE.
+     */
+    @Test
+    public void testGenMovesNoPick()
+    {
+        BitBoard last = new BitBoard(2, 4);
+        last.make(BitBoard.NONE, 0);
+        last.make(0, 1);
+        last.make(1, 2);
+        last.make(2, 3);
+        int[] buf = new int[GameAI.maxMoves(last)];
+        assertEquals(1, GameAI.genMoves(last, buf, 0));
+        assertEquals(3, Move.cellOf(buf[0]));
+        assertEquals(BitBoard.NONE, Move.pickOf(buf[0]));
+    }
+}
@@ -0,0 +1,167 @@
+package model.Game.GameAI;
+
+import model.Attribute;
+import model.Game.BitBoard;
+import model.Game.Game;
+import model.Game.Move;
+import model.Game.Position;
+import model.Game.Quarto;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HardAITest
+{
+    private static final String POS = "Q1 l 0..f.6..9..3..c. 5 1";
+
+    /**
+     * Helper for building an AI that searches to a fixed depth without a time limit.
+     */
+    private HardAI fixedDepthAI(int threads, int depth)
+    {
+        HardAI ai = new HardAI(1, threads);
+        ai.setTimeLimit(0);
+        ai.setMaxDepth(depth);
+        return ai;
+    }
+
+    /**
+     * Plain alpha-beta search mirroring the searcher's scoring, without a table, move ordering or narrowed windows.
+     */
+    private int fullWindow(BitBoard b, int depth, int alpha, int beta)
+    {
+        if(b.liveLines() == 0) return Searcher.DRAW_SCORE;
+        long open = b.openCells();
+        for(long cs = open; cs != 0; cs &= cs - 1)
+            if(b.wins(Long.numberOfTrailingZeros(cs), b.nextPick())) return Searcher.WIN_SCORE;
+        if(Long.bitCount(open) == 1) return Searcher.DRAW_SCORE;
+        if(depth == 0) return -HardAI.countLines(b);
+        int[] moves = new int[GameAI.maxMoves(b)];
+        int count = GameAI.genSafeMoves(b, moves, 0), best = Searcher.MIN_SCORE;
+        for(int i = 0; i < count && alpha < beta; i++)
+        {
+            b.make(Move.cellOf(moves[i]), Move.pickOf(moves[i]));
+            best = Math.max(best, -fullWindow(b, depth - 1, -beta, -alpha));
+            b.unmake();
+            alpha = Math.max(alpha, best);
+        }
+        return best;
+    }
+
+    /**
+     * Principal variation search with aspiration windows should find the same root score as searching every root
+     * move with the full MIN_SCORE..MAX_SCORE window. None of the positions has a winning placement, so the AI always
+     * searches.
+     */
+    @Test
+    public void testSameScoreAsFullWindow()
+    {
+        String[] positions = {POS, "Q1 l 0..f.6...9.3.c.. 2 1", "Q1 l 0.7f.6...9.3.c.. 5 0",
+                              "Q1 lq 0..f.6..9..3..c. 5 1", "Q1 lw 0..f.6..9..3..c. 5 1"};
+        for(String pos : positions)
+            for(int depth = 1; depth <= 4; depth++)
+            {
+                Game g = Position.read(pos);
+                BitBoard b = g.bitBoard();
+                int[] moves = new int[GameAI.maxMoves(b)];
+                int count = GameAI.genSafeMoves(b, moves, 0), expected = Searcher.MIN_SCORE;
+                for(int i = 0; i < count; i++)
+                {
+                    b.make(Move.cellOf(moves[i]), Move.pickOf(moves[i]));
+                    expected = Math.max(expected, -fullWindow(b, depth, Searcher.MIN_SCORE, Searcher.MAX_SCORE));
+                    b.unmake();
+                }
+                HardAI ai = fixedDepthAI(1, depth);
+                ai.genMove(g);
+                assertEquals(pos + " at depth " + depth, expected, ai.lastScore());
+            }
+    }
+
+    /**
+     * With a single thread and no time limit, two searches of the same position should pick exactly the same move.
+     */
+    @Test
+    public void testSingleThreadDeterministic()
+    {
+        Move a = fixedDepthAI(1, 4).genMove(Position.read(POS));
+        Move b = fixedDepthAI(1, 4).genMove(Position.read(POS));
+        assertEquals(a.x, b.x);
+        assertEquals(a.y, b.y);
+        assertEquals(a.picked, b.picked);
+    }
+
+    /**
+     * The search statistics of the last move should be available without reading the log.
+     */
+    @Test
+    public void testStatistics()
+    {
+        HardAI ai = fixedDepthAI(1, 4);
+        ai.genMove(Position.read(POS));
+        assertTrue(ai.nodes() > 0);
+        assertTrue(ai.firstCutoffRate() > 0 && ai.firstCutoffRate() <= 1);
+    }
+
+    /**
+     * Searching with helper threads should still return a legal move, and leave the AI ready to search again.
+     */
+    @Test
+    public void testHelperThreads()
+    {
+        HardAI ai = fixedDepthAI(4, 4);
+        assertEquals(4, ai.getThreads());
+        for(int i = 0; i < 2; i++)
+        {
+            Game g = Position.read(POS);
+            Move m = ai.genMove(g);
+            assertTrue(g.isOpen(m.x, m.y));
+            assertTrue(g.isFree(m.picked));
+        }
+    }
+
+    /**
+     * A search under a time limit should answer in about that time even early in a 6x6 game, which is far too big to
+     * search to any useful fixed depth.
+     */
+    @Test
+    public void testTimeLimit()
+    {
+        Game g = new Quarto(Attribute.SLASH, Attribute.BAR);
+        g.runTurn(-1, -1, g.getFrees().get(0));
+        HardAI ai = new HardAI(1);
+        ai.setTimeLimit(200);
+        long start = System.currentTimeMillis();
+        Move m = ai.genMove(g);
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertTrue(g.isOpen(m.x, m.y));
+        assertTrue(g.isFree(m.picked));
+    }
+
+    /**
+     * A deadline that has already passed should still give a legal move.
+     */
+    @Test
+    public void testPassedDeadline()
+    {
+        Game g = Position.read(POS);
+        Move m = new HardAI(1).genMove(g, System.currentTimeMillis() - 1);
+        assertTrue(g.isOpen(m.x, m.y));
+        assertTrue(g.isFree(m.picked));
+    }
+
+    /**
+     * The AI needs at least one thread to search with.
+     */
+    @Test
+    public void testNoThreads()
+    {
+        try
+        {
+            new HardAI().setThreads(0);
+            fail("Accepted no threads");
+        } catch(IllegalArgumentException e)
+        {
+            assertTrue(e.getMessage().contains("at least one"));
+        }
+    }
+}
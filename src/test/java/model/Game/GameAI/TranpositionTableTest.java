@@ -0,0 +1,79 @@
+package model.Game.GameAI;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static model.Game.GameAI.TranpositionTable.*;
+import static org.junit.Assert.*;
+
+public class TranpositionTableTest
+{
+    private TranpositionTable tt;
+
+    /**
+     * Setup function. Initializes a 1MB table.
+     */
+    @Before
+    public void setup()
+    {
+        tt = new TranpositionTable(1);
+    }
+
+    /**
+     * The table should use the memory budget, rounded down to a power of two.
+     */
+    @Test
+    public void testCapacity()
+    {
+        assertEquals((1 << 20) / Long.BYTES, tt.capacity());
+        assertEquals(2 * (1 << 20) / Long.BYTES, new TranpositionTable(3).capacity());
+    }
+
+    /**
+     * Stores an entry and probes it back. Every packed field should survive the round trip.
+     */
+    @Test
+    public void testStoreAndProbe()
+    {
+        long hash = 0x123456789ABCDEFL;
+        assertEquals(0, tt.probe(hash));
+        tt.store(hash, 7, LOWER, -42, 0x0C05);
+        long e = tt.probe(hash);
+        assertEquals(7, depth(e));
+        assertEquals(LOWER, flag(e));
+        assertEquals(-42, value(e));
+        assertEquals(0x0C05, move(e));
+    }
+
+    /**
+     * Probing a hash that maps to the same bucket but has a different verification key should miss.
+     */
+    @Test
+    public void testVerification()
+    {
+        long hash = 0x1111L;
+        tt.store(hash, 3, EXACT, 5, 0);
+        assertEquals(0, tt.probe(hash | (1L << 40)));
+    }
+
+    /**
+     * A shallow entry should not evict a deeper one from the same bucket, but should still be stored in the
+     * always-replace slot.
+     */
+    @Test
+    public void testReplacement()
+    {
+        long deep = 0x10L | (1L << 40), shallow = 0x10L | (2L << 40), other = 0x10L | (3L << 40);
+        tt.store(deep, 9, EXACT, 1, 0);
+        tt.store(shallow, 2, EXACT, 2, 0);
+        assertEquals(9, depth(tt.probe(deep)));
+        assertEquals(2, depth(tt.probe(shallow)));
+        tt.store(other, 1, UPPER, 3, 0);
+        assertEquals(9, depth(tt.probe(deep)));
+        assertEquals(0, tt.probe(shallow));
+        assertEquals(UPPER, flag(tt.probe(other)));
+
+        tt.clear();
+        assertEquals(0, tt.probe(deep));
+    }
+}
@@ -0,0 +1,88 @@
+package model.Game;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LineTableTest
+{
+    /**
+     * Checks the standard 4x4 topology: ten lines, corner cells on three lines and inner diagonal cells on three.
+     */
+    @Test
+    public void testStandardBoard()
+    {
+        LineTable t = LineTable.of(4);
+        assertEquals(10, t.count);
+        assertArrayEquals(new int[]{0, 4, 8}, t.linesOf(0));
+        assertArrayEquals(new int[]{0, 7, 9}, t.linesOf(3));
+        assertArrayEquals(new int[]{1, 4}, t.linesOf(4));
+        assertArrayEquals(new int[]{3, 7, 8}, t.linesOf(15));
+        assertArrayEquals(new int[]{3, 6, 9, 12}, t.cellsOf(9));
+        assertEquals(0x1111L, t.maskOf(4));
+        assertEquals(3, t.maxLinesPerCell());
+        assertSame(t, LineTable.of(4));
+    }
+
+    /**
+     * On odd boards the center cell lies on both diagonals, so four lines pass through it.
+     */
+    @Test
+    public void testOddBoard()
+    {
+        LineTable t = LineTable.of(5);
+        assertEquals(12, t.count);
+        assertArrayEquals(new int[]{2, 7, 10, 11}, t.linesOf(12));
+        assertEquals(4, t.maxLinesPerCell());
+        for(int l = 0; l < t.count; l++)
+            for(int c : t.cellsOf(l))
+            {
+                boolean found = false;
+                for(int k : t.linesOf(c)) found |= (k == l);
+                assertTrue(found);
+            }
+    }
+
+    /**
+     * The square variant adds the 2x2 blocks after the lines. A 5x5 board has sixteen blocks of four cells each.
+     */
+    @Test
+    public void testBlocks()
+    {
+        LineTable t = LineTable.of(5, WinRules.LINES, WinRules.BLOCKS);
+        assertEquals(12 + 16, t.count);
+        assertNotSame(t, LineTable.of(5));
+        assertArrayEquals(new int[]{0, 1, 5, 6}, t.cellsOf(12));
+        assertEquals(4, t.lengthOf(27));
+        assertEquals((1L << 18) | (1L << 19) | (1L << 23) | (1L << 24), t.maskOf(12 + 15));
+        assertArrayEquals(new int[]{2, 7, 10, 11, 17, 18, 21, 22}, t.linesOf(12));
+        assertEquals(8, t.maxLinesPerCell());
+    }
+
+    /**
+     * Wrap-around diagonals include the two main diagonals, which should only appear once in the table.
+     */
+    @Test
+    public void testWrapDropsDuplicates()
+    {
+        LineTable t = LineTable.of(4, WinRules.LINES, WinRules.WRAP);
+        assertEquals(10 + 8 - 2, t.count);
+        assertArrayEquals(new int[]{1, 6, 11, 12}, t.cellsOf(10));
+        assertEquals(4, t.maxLinesPerCell());
+        assertEquals(2, t.rules().size());
+    }
+
+    /**
+     * Custom rules only have to declare their patterns.
+     */
+    @Test
+    public void testCustomRule()
+    {
+        WinRule corners = dim -> new int[][]{{0, dim - 1, dim * (dim - 1), dim * dim - 1}};
+        LineTable t = LineTable.of(4, corners);
+        assertEquals(1, t.count);
+        assertEquals(0x9009L, t.maskOf(0));
+        assertEquals(0, t.linesOf(5).length);
+        assertSame(t, LineTable.of(4, corners));
+    }
+}
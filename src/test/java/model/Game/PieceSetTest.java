@@ -0,0 +1,88 @@
+package model.Game;
+
+import model.Piece;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PieceSetTest
+{
+    private Piece[] pieces;
+    private PieceSet set;
+
+    /**
+     * Setup function. Creates eight pieces and a set containing all of them.
+     */
+    @Before
+    public void setup()
+    {
+        pieces = new Piece[8];
+        for(int v = 0; v < 8; v++)
+            pieces[v] = new Piece(new byte[]{(byte) (v >> 2 & 1), (byte) (v >> 1 & 1), (byte) (v & 1)});
+        set = new PieceSet(pieces, 0xFF);
+    }
+
+    /**
+     * The set should be ordered by piece value.
+     */
+    @Test
+    public void testOrder()
+    {
+        assertEquals(8, set.size());
+        for(int i = 0; i < 8; i++)
+        {
+            assertSame(pieces[i], set.get(i));
+            assertEquals(i, set.indexOf(pieces[i]));
+        }
+    }
+
+    /**
+     * Removing a piece and adding it back should restore its position in the list.
+     */
+    @Test
+    public void testRemoveAndAddRestoresOrder()
+    {
+        assertTrue(set.remove(pieces[3]));
+        assertFalse(set.contains(pieces[3]));
+        assertSame(pieces[4], set.get(3));
+        assertEquals(7, set.size());
+
+        assertSame(pieces[0], set.remove(0));
+        assertTrue(set.add(pieces[3]));
+        assertFalse(set.add(pieces[3]));
+        assertTrue(set.add(pieces[0]));
+        for(int i = 0; i < 8; i++) assertSame(pieces[i], set.get(i));
+    }
+
+    /**
+     * Pieces that are not part of the set's game should never be members, even if they have the same value.
+     */
+    @Test
+    public void testForeignPiece()
+    {
+        Piece foreign = new Piece(new byte[]{0, 1, 1});
+        assertEquals(3, foreign.value);
+        assertFalse(set.contains(foreign));
+        assertFalse(set.remove(foreign));
+        assertEquals(-1, set.indexOf(foreign));
+    }
+
+    /**
+     * Iterating the set should visit the pieces in order, and removing through the iterator should update the set.
+     */
+    @Test
+    public void testIterator()
+    {
+        List<Piece> seen = new ArrayList<>();
+        for(Piece p : set) seen.add(p);
+        assertEquals(8, seen.size());
+        for(int i = 0; i < 8; i++) assertSame(pieces[i], seen.get(i));
+
+        set.removeIf(p -> p.value % 2 == 0);
+        assertEquals(0xAAL, set.mask());
+    }
+}
@@ -0,0 +1,87 @@
+package model.Game;
+
+import model.Attribute;
+import model.Piece;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PositionTest
+{
+    /**
+     * A new game should write the documented starting position, and reading it back should give an equal game.
+     */
+    @Test
+    public void testStartingPosition()
+    {
+        Quarto q = new Quarto();
+        assertEquals("Q1 l ................ . 0", q.position());
+        Game g = Position.read(q.position());
+        assertEquals(q.snapshot(), g.snapshot());
+        assertEquals(16, g.getFrees().size());
+    }
+
+    /**
+     * Positions of games in progress should survive a round trip, including the variant.
+     */
+    @Test
+    public void testRoundTrip()
+    {
+        Game[] games = {new Quarto(), new Quarto(true), new Quarto(Attribute.SLASH, Attribute.BAR)};
+        for(Game g : games)
+        {
+            g.runTurn(-1, -1, g.getFrees().get(7));
+            g.runTurn(1, 2, g.getFrees().get(0));
+            g.runTurn(3, 0, g.getFrees().get(4));
+            String pos = g.position();
+            Game copy = Position.read(pos);
+            assertEquals(pos, copy.position());
+            assertEquals(g.snapshot(), copy.snapshot());
+            assertEquals(g.toString(), copy.toString());
+            assertEquals(g.getFrees().size(), copy.getFrees().size());
+            assertEquals(g.getNextPick().value, copy.getNextPick().value);
+            assertEquals(g.getTurn(), copy.getTurn());
+        }
+    }
+
+    /**
+     * A position with a completed line should be read as a game won by the player who moved last.
+     */
+    @Test
+    public void testWonPosition()
+    {
+        Quarto q = new Quarto();
+        List<Piece> sims = q.findSimilarPieces(q.getFrees().get(0));
+        q.runTurn(-1, -1, sims.remove(0));
+        for(int x = 0; x < 4; x++) q.runTurn(x, 0, sims.remove(0));
+        assertEquals(0, q.winner());
+        Game g = Position.read(q.position());
+        assertEquals(0, g.winner());
+    }
+
+    /**
+     * Malformed positions should be rejected.
+     */
+    @Test
+    public void testMalformed()
+    {
+        String[] bad = {"", "Q2 l ................ . 0", "Q1 ................ . 0", "Q1 l ............... . 0",
+                        "Q1 l 0.............0. . 0", "Q1 l 0............... 0 0", "Q1 l ................ g 0",
+                        "Q1 l ................ . 2", "Q1 l ................ . 0 ",
+                        "Q1 lSS .................................... . 0", "Q1 qq ................ . 0",
+                        "Q1 l 0123............ 4 0", "Q1 l ................ 4 0", "Q1 l 0............... . 1"};
+        for(String pos : bad)
+        {
+            try
+            {
+                Position.read(pos);
+                fail("Accepted " + pos);
+            } catch(IllegalArgumentException e)
+            {
+                assertTrue(e.getMessage().contains("Bad position"));
+            }
+        }
+    }
+}
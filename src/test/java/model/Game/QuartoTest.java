@@ -11,6 +11,7 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -466,4 +467,184 @@ public class QuartoTest
         assertEquals(16, q.getActives().size());
     }
 
+    /**
+     * Force-undoes a winning move. The game should no longer be over, the turn should go back to the winner, and the
+     * free pieces should be back in their original order.
+     */
+    @Test
+    public void testForcedUndoWin()
+    {
+        List<Piece> frees = q.getFrees();
+        List<Piece> sims = q.findSimilarPieces(frees.get(0));
+        q.runTurn(-1, -1, sims.remove(0));
+        q.runTurn(0, 0, sims.remove(0));
+        q.runTurn(1, 0, sims.remove(0));
+        q.runTurn(2, 0, sims.remove(0));
+        List<Piece> before = new ArrayList<>(frees);
+        long hash = q.hash();
+        q.runTurn(3, 0, sims.remove(0));
+        assertEquals(0, q.winner());
+
+        assertNotNull(q.undoTurn(true));
+        assertEquals(-1, q.winner());
+        assertEquals(0, q.getTurn());
+        assertEquals(before, frees);
+        assertEquals(hash, q.hash());
+        assertFalse(q.checkWin(q.getNextPick(), 3, 3));
+    }
+
+    /**
+     * On an occupied square, only the piece that is there can win: a square of a won row does not win for another piece.
+     */
+    @Test
+    public void testCheckWinOccupied()
+    {
+        List<Piece> sims = q.findSimilarPieces(q.getFrees().get(0));
+        q.runTurn(-1, -1, sims.remove(0));
+        q.runTurn(0, 0, sims.remove(0));
+        q.runTurn(1, 0, sims.remove(0));
+        q.runTurn(2, 0, sims.remove(0));
+        Piece last = q.getNextPick();
+        q.runTurn(3, 0, sims.get(0));
+        assertEquals(0, q.winner());
+        assertTrue(q.checkWin(last, 3, 0));
+        assertFalse(q.checkWin(sims.get(0), 3, 0));
+    }
+
+    /**
+     * Forks a game in progress. The fork should start at the same position and moves on either game should not affect
+     * the other.
+     */
+    @Test
+    public void testFork()
+    {
+        List<Piece> frees = q.getFrees();
+        q.runTurn(-1, -1, frees.get(3));
+        q.runTurn(1, 2, frees.get(7));
+        Game fork = q.fork();
+        assertEquals(q.snapshot(), fork.snapshot());
+        assertEquals(q.getTurn(), fork.getTurn());
+        assertEquals(q.getNextPick().value, fork.getNextPick().value);
+        assertEquals(q.getPiece(1, 2).value, fork.getPiece(1, 2).value);
+        assertEquals(frees.size(), fork.getFrees().size());
+
+        fork.runTurn(0, 0, fork.getFrees().get(0));
+        assertTrue(q.isOpen(0, 0));
+        assertEquals(14, frees.size());
+        assertNotNull(fork.undoTurn(false));
+        assertNull(fork.undoTurn(false));
+        assertEquals(q.snapshot(), fork.snapshot());
+    }
+
+    /**
+     * Plays the 6x6 variant with both extra attributes. All 64 pieces should be free and a row of six similar pieces
+     * should win.
+     */
+    @Test
+    public void testSixAttributeGame()
+    {
+        Quarto big = new Quarto(Attribute.SLASH, Attribute.BAR);
+        assertEquals(6, big.dim());
+        assertEquals(64, big.getFrees().size());
+        assertEquals("Custom: slash + bar", big.toString());
+
+        List<Piece> sims = big.findSimilarPieces(big.getFrees().get(0));
+        assertEquals(63, sims.size());
+        big.runTurn(-1, -1, sims.remove(0));
+        for(int x = 0; x < 5; x++)
+        {
+            big.runTurn(x, 5, sims.remove(0));
+            assertEquals(-1, big.winner());
+        }
+        assertTrue(big.checkWin(big.getNextPick(), 5, 5));
+        big.runTurn(5, 5, sims.remove(0));
+        assertEquals(0, big.winner());
+    }
+
+    /**
+     * Four similar pieces in a 2x2 square only win in the square variant.
+     */
+    @Test
+    public void testSquareWin()
+    {
+        Quarto sq = new Quarto(true);
+        assertTrue(sq.hasSquareWins());
+        for(Quarto g : new Quarto[]{q, sq})
+        {
+            List<Piece> sims = g.findSimilarPieces(g.getFrees().get(0));
+            g.runTurn(-1, -1, sims.remove(0));
+            g.runTurn(1, 1, sims.remove(0));
+            g.runTurn(2, 1, sims.remove(0));
+            g.runTurn(1, 2, sims.remove(0));
+            assertEquals(g == sq, g.checkWin(g.getNextPick(), 2, 2));
+            g.runTurn(2, 2, sims.remove(0));
+            assertEquals((g == sq)? 0 : -1, g.winner());
+        }
+        assertEquals(sq.snapshot(), sq.fork().snapshot());
+        assertTrue(((Quarto) sq.fork()).hasSquareWins());
+        BitBoard restored = new BitBoard(sq.snapshot());
+        assertSame(sq.lines(), restored.lines());
+        assertTrue(restored.isWon());
+    }
+
+    /**
+     * A diagonal that wraps around the edge of the board wins when playing with the wrap-around rule.
+     */
+    @Test
+    public void testWrapWin()
+    {
+        Quarto wrap = new Quarto(WinRules.LINES, WinRules.WRAP);
+        assertEquals("Standard (wrap-around)", wrap.toString());
+        List<Piece> sims = wrap.findSimilarPieces(wrap.getFrees().get(0));
+        wrap.runTurn(-1, -1, sims.remove(0));
+        wrap.runTurn(1, 0, sims.remove(0));
+        wrap.runTurn(2, 1, sims.remove(0));
+        wrap.runTurn(3, 2, sims.remove(0));
+        assertTrue(wrap.checkWin(wrap.getNextPick(), 0, 3));
+        wrap.runTurn(0, 3, sims.remove(0));
+        assertEquals(0, wrap.winner());
+    }
+
+    /**
+     * After three similar pieces on a row, some free pieces are poison, and each of them completes the row.
+     */
+    @Test
+    public void testPoisonPieces()
+    {
+        List<Piece> sims = q.findSimilarPieces(q.getFrees().get(0));
+        q.runTurn(-1, -1, sims.remove(0));
+        q.runTurn(0, 0, sims.remove(0));
+        q.runTurn(1, 0, sims.remove(0));
+        assertTrue(q.getPoisonPieces().isEmpty());
+        List<Piece> poison = q.getPoisonPieces(2, 0);
+        assertFalse(poison.isEmpty());
+        for(Piece p : poison) assertTrue(q.getFrees().contains(p));
+        assertTrue(poison.contains(sims.get(0)));
+    }
+
+    /**
+     * Once every line holds pieces with nothing in common, the game ends in a draw with cells still open. A draw can
+     * only be taken back when forced, which reopens the game.
+     */
+    @Test
+    public void testEarlyDraw()
+    {
+        int[] cells = {11, 0, 15, 6, 2, 8, 13, 5, 7, 3, 14, 1, 12};
+        int[] picks = {12, 3, 0, 14, 7, 13, 4, 11, 5, 9, 2, 10, 6};
+        q.runTurn(-1, -1, q.pieceOf(8));
+        for(int i = 0; i < cells.length; i++)
+        {
+            assertEquals(-1, q.winner());
+            q.runTurn(cells[i] % 4, cells[i] / 4, q.pieceOf(picks[i]));
+        }
+        assertEquals(-2, q.winner());
+        assertEquals(13, q.getActives().size());
+        assertEquals(0, q.bitBoard().liveLines());
+        assertNull(q.undoTurn(false));
+        assertEquals(-2, q.winner());
+        assertNotNull(q.undoTurn(true));
+        assertEquals(-1, q.winner());
+        assertEquals(12, q.getActives().size());
+        assertTrue(q.bitBoard().liveLines() > 0);
+    }
 }
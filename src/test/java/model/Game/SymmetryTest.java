@@ -0,0 +1,112 @@
+package model.Game;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SymmetryTest
+{
+    /**
+     * Helper for building a board with the given pieces on the given cells and the given next pick.
+     */
+    private BitBoard board(LineTable lines, int numPieces, int[] cells, int[] pieces, int pick)
+    {
+        BitBoard b = new BitBoard(lines, numPieces);
+        if(cells.length == 0)
+        {
+            b.make(BitBoard.NONE, pick);
+            return b;
+        }
+        b.make(BitBoard.NONE, pieces[0]);
+        for(int i = 0; i < cells.length; i++)
+            b.make(cells[i], (i + 1 < cells.length)? pieces[i + 1] : pick);
+        return b;
+    }
+
+    /**
+     * Helper for relabeling a piece: attribute bit i moves to bit perm[i], then the bits in flip are flipped.
+     */
+    private int relabel(int piece, int[] perm, int flip)
+    {
+        int v = 0;
+        for(int i = 0; i < perm.length; i++) v |= ((piece >>> i) & 1) << perm[i];
+        return v ^ flip;
+    }
+
+    /**
+     * The standard 4x4 board has 32 symmetries, the identity first, and each maps the lines onto the lines.
+     */
+    @Test
+    public void testStandardSymmetries()
+    {
+        LineTable t = LineTable.of(4);
+        Symmetry sym = Symmetry.of(t);
+        assertEquals(32, sym.count());
+        assertSame(sym, Symmetry.of(t));
+        for(int c = 0; c < t.size; c++) assertEquals(c, sym.cellMap(0)[c]);
+        long[] masks = new long[t.count];
+        for(int l = 0; l < t.count; l++) masks[l] = t.maskOf(l);
+        Arrays.sort(masks);
+        for(int s = 0; s < sym.count(); s++)
+        {
+            long[] images = new long[t.count];
+            for(int l = 0; l < t.count; l++)
+                for(int c : t.cellsOf(l)) images[l] |= 1L << sym.cellMap(s)[c];
+            Arrays.sort(images);
+            assertArrayEquals(masks, images);
+        }
+        assertEquals(192, Symmetry.of(LineTable.of(6)).count());
+    }
+
+    /**
+     * Positions that differ by a board symmetry and a relabeling of the pieces should share a key, whatever is left in
+     * a reused scratch array.
+     */
+    @Test
+    public void testEquivalentPositions()
+    {
+        LineTable t = LineTable.of(4);
+        Symmetry sym = Symmetry.of(t);
+        int[] cells = {0, 5, 6, 11, 13}, pieces = {3, 9, 12, 0, 7};
+        int pick = 14;
+        long key = sym.canonicalKey(board(t, 16, cells, pieces, pick));
+        long[] scratch = new long[Symmetry.SCRATCH_LENGTH];
+        Arrays.fill(scratch, -1);
+        int[][] perms = {{0, 1, 2, 3}, {1, 0, 2, 3}, {3, 2, 0, 1}};
+        for(int s = 0; s < sym.count(); s++)
+            for(int[] perm : perms)
+                for(int flip : new int[]{0, 5, 15})
+                {
+                    int[] mapped = new int[cells.length], relabeled = new int[cells.length];
+                    for(int i = 0; i < cells.length; i++)
+                    {
+                        mapped[i] = sym.cellMap(s)[cells[i]];
+                        relabeled[i] = relabel(pieces[i], perm, flip);
+                    }
+                    BitBoard b = board(t, 16, mapped, relabeled, relabel(pick, perm, flip));
+                    assertEquals(key, sym.canonicalKey(b));
+                    assertEquals(key, sym.canonicalKey(b, scratch));
+                }
+    }
+
+    /**
+     * Positions that play differently should get different keys.
+     */
+    @Test
+    public void testDistinctPositions()
+    {
+        LineTable t = LineTable.of(4);
+        Symmetry sym = Symmetry.of(t);
+        long corner = sym.canonicalKey(board(t, 16, new int[]{0}, new int[]{0}, 1));
+        long edge = sym.canonicalKey(board(t, 16, new int[]{1}, new int[]{0}, 1));
+        long apart = sym.canonicalKey(board(t, 16, new int[]{0}, new int[]{0}, 15));
+        long pair = sym.canonicalKey(board(t, 16, new int[]{0, 1}, new int[]{0, 3}, 1));
+        long split = sym.canonicalKey(board(t, 16, new int[]{0, 6}, new int[]{0, 3}, 1));
+        assertNotEquals(corner, edge);
+        assertNotEquals(corner, apart);
+        assertNotEquals(pair, split);
+        assertEquals(corner, sym.canonicalKey(board(t, 16, new int[]{15}, new int[]{6}, 2)));
+    }
+}
@@ -0,0 +1,57 @@
+package model;
+
+import model.Game.Quarto;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PieceCatalogTest
+{
+    /**
+     * Games of the same variant should share their pieces, while other variants get their own.
+     */
+    @Test
+    public void testSharedBetweenGames()
+    {
+        Quarto a = new Quarto(), b = new Quarto(true), c = new Quarto(Attribute.BAR);
+        assertSame(a.getFrees().get(5), b.getFrees().get(5));
+        assertNotSame(a.getFrees().get(5), c.getFrees().get(5));
+        assertEquals(32, c.getFrees().size());
+    }
+
+    /**
+     * The catalog hands out copies of its arrays, indexed by value, so callers can't replace its pieces.
+     */
+    @Test
+    public void testIndexedByValue()
+    {
+        List<Attribute> atts = Arrays.asList(Attribute.SIZE, Attribute.SHAPE, Attribute.COLOR, Attribute.TOP);
+        Piece[] pieces = PieceCatalog.of(atts);
+        assertEquals(16, pieces.length);
+        for(int v = 0; v < pieces.length; v++) assertEquals(v, pieces[v].value);
+        pieces[0] = null;
+        assertNotNull(PieceCatalog.of(atts)[0]);
+    }
+
+    /**
+     * Catalog pieces are shared by every game, so they can't be given new attributes.
+     */
+    @Test
+    public void testPiecesFrozen()
+    {
+        Piece p = new Quarto().getFrees().get(0);
+        int mask = p.getAttMask();
+        try
+        {
+            p.addAtt(Attribute.SLASH, (byte) 0);
+            fail("Changed a catalog piece");
+        } catch(IllegalStateException e)
+        {
+            assertEquals(mask, p.getAttMask());
+        }
+        assertEquals(mask, new Quarto().getFrees().get(0).getAttMask());
+    }
+}
@@ -1,8 +1,10 @@
 package model;
 
+import model.Attribute.Att;
 import org.junit.Test;
 
 import static model.Attribute.Att.*;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -79,4 +81,26 @@ public class PieceTest
         other.addAtt(Attribute.TOP, (byte) 1);
         assertTrue(p.isSimilar(other));
     }
+
+    /**
+     * Tests counting the shared attributes between two pieces and checking for several attributes at once.
+     */
+    @Test
+    public void testCountShared()
+    {
+        Piece other = new Piece(null);
+        assertEquals(-1, p.countShared(null));
+        assertEquals(0, p.countShared(other));
+
+        p.addAtt(Attribute.COLOR, (byte) 0);
+        p.addAtt(Attribute.SHAPE, (byte) 1);
+        p.addAtt(Attribute.SIZE, (byte) 1);
+        other.addAtt(Attribute.COLOR, (byte) 0);
+        other.addAtt(Attribute.SHAPE, (byte) 1);
+        other.addAtt(Attribute.SIZE, (byte) 0);
+        assertEquals(2, p.countShared(other));
+        assertTrue(p.hasAtts(new Att[]{BWN, CIR, SML}));
+        assertFalse(p.hasAtts(new Att[]{BWN, BIG}));
+        assertEquals(Piece.maskOf(new Att[]{BWN, CIR, SML}), p.getAttMask());
+    }
 }